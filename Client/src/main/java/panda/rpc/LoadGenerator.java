@@ -0,0 +1,240 @@
+package panda.rpc;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import panda.rpc.enumeration.RpcError;
+import panda.rpc.exception.RpcException;
+import panda.rpc.registry.InMemoryServiceRegistry;
+import panda.rpc.transport.RpcClient;
+import panda.rpc.transport.RpcClientProxy;
+import panda.rpc.transport.netty.client.NettyClient;
+import panda.rpc.transport.socket.client.SocketClient;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 开环压测工具：按固定的目标QPS排好每个请求的发出时间，不因为前面的请求变慢而推迟后面的请求，
+ * 延迟从计划发出的时间开始计算，排队和发送被拖延的时间都计入延迟，避免协调遗漏(coordinated omission)
+ * 每个统计窗口按方法输出吞吐、延迟分位数、失败数和超时数，结束时输出全程汇总
+ *
+ * 不需要Nacos，服务端使用进程内注册表启动，客户端直接把服务地址登记到本地注册表：
+ * java -Dsrpc.registry=memory -Dorg.slf4j.simpleLogger.defaultLogLevel=warn panda.rpc.NettyTestServer
+ * java -Dsrpc.load.qps=5000 -Dsrpc.load.duration=60 panda.rpc.LoadGenerator
+ * 每次调用的日志会让压测线程在System.err上排队、抬高延迟，服务端要调低日志级别；
+ * 客户端没有指定 org.slf4j.simpleLogger.defaultLogLevel 时默认按warn输出
+ * 压测SocketTestServer时加上 -Dsrpc.load.transport=socket -Dsrpc.load.address=127.0.0.1:9998 -Dsrpc.load.serializer=2
+ */
+public class LoadGenerator {
+
+    private static final int     QPS         = Integer.getInteger("srpc.load.qps", 1000);
+    private static final int     DURATION    = Integer.getInteger("srpc.load.duration", 30);
+    /**
+     * 预热时间，单位秒，按同样的QPS发出请求但不计入结果，排除建连和JIT编译的影响
+     */
+    private static final int     WARMUP      = Integer.getInteger("srpc.load.warmup", 5);
+    private static final int     WINDOW      = Integer.getInteger("srpc.load.window", 5);
+    private static final int     THREADS     = Integer.getInteger("srpc.load.threads", 200);
+    /**
+     * 未完成的请求超过该数时不再发出新请求，计为失败，防止服务端跟不上时队列无限增长
+     */
+    private static final int     MAX_PENDING = Integer.getInteger("srpc.load.maxPending", 100000);
+    private static final int     SERIALIZER  = Integer.getInteger("srpc.load.serializer", 3);
+    private static final boolean SOCKET      = "socket".equalsIgnoreCase(System.getProperty("srpc.load.transport"));
+    private static final String  ADDRESS     = System.getProperty("srpc.load.address", "127.0.0.1:9999");
+    /**
+     * 参与压测的方法，按顺序轮流调用
+     */
+    private static final String  METHODS     = System.getProperty("srpc.load.methods", "hello,bye");
+
+    /**
+     * 延迟单位为微秒，最大记录1小时
+     */
+    private static final long HIGHEST_LATENCY = TimeUnit.HOURS.toMicros(1);
+
+    private static final AtomicInteger pending = new AtomicInteger();
+
+    public static void main(String[] args) throws Exception {
+        //必须在创建第一个Logger之前设置
+        if (System.getProperty("org.slf4j.simpleLogger.defaultLogLevel") == null) {
+            System.setProperty("org.slf4j.simpleLogger.defaultLogLevel", "warn");
+        }
+        InMemoryServiceRegistry registry = new InMemoryServiceRegistry();
+        String[] hostAndPort = ADDRESS.split(":");
+        InetSocketAddress address = new InetSocketAddress(hostAndPort[0], Integer.parseInt(hostAndPort[1]));
+        registry.register(HelloService.class.getCanonicalName(), address);
+        registry.register(ByeService.class.getCanonicalName(), address);
+        RpcClient client = SOCKET ? new SocketClient(SERIALIZER, registry) : new NettyClient(SERIALIZER, registry);
+        RpcClientProxy proxy = new RpcClientProxy(client);
+        HelloService helloService = proxy.getProxy(HelloService.class);
+        ByeService byeService = proxy.getProxy(ByeService.class);
+
+        List<Target> targets = new ArrayList<>();
+        for (String method : METHODS.split(",")) {
+            switch (method.trim()) {
+                case "hello":
+                    HelloObject object = new HelloObject(114514, "load test");
+                    targets.add(new Target("hello", () -> helloService.hello(object)));
+                    break;
+                case "bye":
+                    targets.add(new Target("bye", () -> byeService.bye("load test")));
+                    break;
+                default:
+                    throw new IllegalArgumentException("不支持的压测方法: " + method);
+            }
+        }
+
+        ExecutorService workers = new ThreadPoolExecutor(THREADS, THREADS, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(),
+                new ThreadFactoryBuilder().setNameFormat("load-worker-%d").setDaemon(true).build());
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder().setNameFormat("load-reporter").setDaemon(true).build());
+        System.out.printf("开始压测: %s %s, 目标 %d qps, 预热 %d 秒, 持续 %d 秒, 方法 %s%n",
+                SOCKET ? "socket" : "netty", ADDRESS, QPS, WARMUP, DURATION, METHODS);
+        if (WARMUP > 0) {
+            run(targets, workers, WARMUP);
+            for (Target target : targets) {
+                target.reset();
+            }
+        }
+        long begin = System.nanoTime();
+        reporter.scheduleAtFixedRate(() -> report(targets, begin, false), WINDOW, WINDOW, TimeUnit.SECONDS);
+        run(targets, workers, DURATION);
+        reporter.shutdownNow();
+        reporter.awaitTermination(1, TimeUnit.SECONDS);
+        report(targets, begin, true);
+        System.exit(0);
+    }
+
+    /**
+     * 按目标QPS发出seconds秒的请求，并等待已发出的请求完成
+     */
+    private static void run(List<Target> targets, ExecutorService workers, int seconds) throws InterruptedException {
+        long begin = System.nanoTime();
+        long interval = TimeUnit.SECONDS.toNanos(1) / QPS;
+        long total = (long) QPS * seconds;
+        for (long i = 0; i < total; i++) {
+            long intended = begin + i * interval;
+            long delay = intended - System.nanoTime();
+            if (delay > 0) {
+                LockSupport.parkNanos(delay);
+            }
+            Target target = targets.get((int) (i % targets.size()));
+            if (pending.incrementAndGet() > MAX_PENDING) {
+                pending.decrementAndGet();
+                target.errors.increment();
+                continue;
+            }
+            workers.execute(() -> target.call(intended));
+        }
+        //超时的请求由客户端按超时时间结束
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (pending.get() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    private static synchronized void report(List<Target> targets, long begin, boolean summary) {
+        long elapsed = TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - begin);
+        for (Target target : targets) {
+            Histogram interval = target.recorder.getIntervalHistogram();
+            target.total.add(interval);
+            long errors = target.errors.sumThenReset();
+            long timeouts = target.timeouts.sumThenReset();
+            target.totalErrors += errors;
+            target.totalTimeouts += timeouts;
+            if (summary) {
+                print("汇总 " + elapsed + "s", target.name, target.total, elapsed, target.totalErrors,
+                        target.totalTimeouts);
+            } else {
+                print(elapsed + "s", target.name, interval, WINDOW, errors, timeouts);
+            }
+        }
+    }
+
+    private static void print(String label, String method, Histogram histogram, long seconds, long errors,
+                              long timeouts) {
+        System.out.printf("[%8s] %-6s qps=%-8d p50=%.3fms p90=%.3fms p99=%.3fms p99.9=%.3fms max=%.3fms "
+                        + "errors=%d timeouts=%d%n",
+                label, method, seconds > 0 ? histogram.getTotalCount() / seconds : histogram.getTotalCount(),
+                millis(histogram.getValueAtPercentile(50)), millis(histogram.getValueAtPercentile(90)),
+                millis(histogram.getValueAtPercentile(99)), millis(histogram.getValueAtPercentile(99.9)),
+                millis(histogram.getMaxValue()), errors, timeouts);
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+
+    private static final class Target {
+
+        private final String           name;
+        private final Callable<Object> call;
+        private final Recorder         recorder  = new Recorder(HIGHEST_LATENCY, 3);
+        private final Histogram        total     = new Histogram(HIGHEST_LATENCY, 3);
+        private final LongAdder        errors    = new LongAdder();
+        private final LongAdder        timeouts  = new LongAdder();
+
+        /**
+         * 只在report中读写，report已加锁
+         */
+        private long totalErrors;
+        private long totalTimeouts;
+
+        private Target(String name, Callable<Object> call) {
+            this.name = name;
+            this.call = call;
+        }
+
+        /**
+         * @param intended 按目标QPS计划发出的时间，延迟从这里开始计算
+         */
+        private void call(long intended) {
+            try {
+                //代理在发送失败时返回null
+                if (call.call() == null) {
+                    errors.increment();
+                    return;
+                }
+                record(intended);
+            } catch (RpcException e) {
+                if (e.getError() == RpcError.REQUEST_TIMEOUT) {
+                    //超时的请求同样计入延迟分布，否则慢的那部分请求会从分位数中消失
+                    timeouts.increment();
+                    record(intended);
+                } else {
+                    errors.increment();
+                }
+            } catch (Exception e) {
+                errors.increment();
+            } finally {
+                pending.decrementAndGet();
+            }
+        }
+
+        private void reset() {
+            recorder.reset();
+            errors.reset();
+            timeouts.reset();
+        }
+
+        private void record(long intended) {
+            long latency = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - intended);
+            recorder.recordValue(Math.min(Math.max(latency, 0), HIGHEST_LATENCY));
+        }
+
+    }
+
+}
@@ -1,5 +1,8 @@
 package panda.rpc;
 
+import panda.rpc.annotation.RpcStub;
+
+@RpcStub
 public interface ByeService {
 
     String bye(String name);
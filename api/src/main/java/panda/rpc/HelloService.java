@@ -1,5 +1,8 @@
 package panda.rpc;
 
+import panda.rpc.annotation.RpcStub;
+
+@RpcStub
 public interface HelloService {
 
     String hello(HelloObject object);
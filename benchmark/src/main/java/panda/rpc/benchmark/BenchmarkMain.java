@@ -0,0 +1,22 @@
+package panda.rpc.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * benchmarks.jar的入口，接受JMH的全部命令行参数，并默认加上GC分析器输出每次操作的分配字节数
+ * 例如只跑序列化的基准测试：
+ * java -jar benchmark/target/benchmarks.jar SerializerBenchmark -p serializer=KRYO,PROTOBUF
+ */
+public class BenchmarkMain {
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+
+}
@@ -0,0 +1,90 @@
+package panda.rpc.benchmark;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.util.ReferenceCountUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import panda.rpc.codec.CommonDecoder;
+import panda.rpc.codec.CommonEncoder;
+import panda.rpc.entity.RpcRequest;
+import panda.rpc.entity.RpcResponse;
+import panda.rpc.enumeration.SerializerCode;
+import panda.rpc.serializer.CommonSerializer;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CommonEncoder和CommonDecoder在EmbeddedChannel上的编解码开销，包含帧头处理和缓冲区分配，不包含网络传输
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dorg.slf4j.simpleLogger.defaultLogLevel=warn")
+@State(Scope.Thread)
+public class CodecBenchmark {
+
+    @Param({"KRYO", "JSON", "HESSIAN", "PROTOBUF"})
+    private SerializerCode serializer;
+
+    @Param({"16", "4096"})
+    private int messageLength;
+
+    private EmbeddedChannel encoder;
+    private EmbeddedChannel decoder;
+    private RpcRequest      request;
+    private RpcResponse<?>  response;
+
+    @Setup
+    public void setup() {
+        encoder = new EmbeddedChannel(new CommonEncoder(CommonSerializer.getByCode(serializer.getCode())));
+        decoder = new EmbeddedChannel(new CommonDecoder());
+        request = Payloads.request(messageLength);
+        response = Payloads.response(request, messageLength);
+    }
+
+    @TearDown
+    public void tearDown() {
+        encoder.finishAndReleaseAll();
+        decoder.finishAndReleaseAll();
+    }
+
+    @Benchmark
+    public int encodeRequest() {
+        encoder.writeOutbound(request);
+        ByteBuf frame = encoder.readOutbound();
+        int length = frame.readableBytes();
+        frame.release();
+        return length;
+    }
+
+    @Benchmark
+    public Object roundTripRequest() {
+        return roundTrip(request);
+    }
+
+    @Benchmark
+    public Object roundTripResponse() {
+        return roundTrip(response);
+    }
+
+    private Object roundTrip(Object msg) {
+        encoder.writeOutbound(msg);
+        decoder.writeInbound((Object) encoder.readOutbound());
+        Object decoded = decoder.readInbound();
+        ReferenceCountUtil.release(decoded);
+        return decoded;
+    }
+
+}
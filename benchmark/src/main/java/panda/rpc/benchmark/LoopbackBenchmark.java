@@ -0,0 +1,142 @@
+package panda.rpc.benchmark;
+
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import panda.rpc.codec.CommonDecoder;
+import panda.rpc.codec.CommonEncoder;
+import panda.rpc.enumeration.SerializerCode;
+import panda.rpc.provider.ServiceProviderImpl;
+import panda.rpc.registry.InMemoryServiceRegistry;
+import panda.rpc.serializer.CommonSerializer;
+import panda.rpc.transport.RpcClientProxy;
+import panda.rpc.transport.netty.NettyTransport;
+import panda.rpc.transport.netty.client.NettyClient;
+import panda.rpc.transport.netty.server.NettyServerHandler;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 本机回环上的端到端调用：客户端代理、连接池、编解码、服务端分发都走真实代码，服务地址从进程内注册表查找
+ * 服务端按NettyServer相同的pipeline启动，不依赖启动类上的@ServiceScan；传输方式与NettyTransport的选择一致，
+ * 加上 -jvmArgsAppend -Dsrpc.transport.native=false 可以对比NIO和epoll；
+ * 并发调用时用 -t 指定线程数，例如 java -jar benchmarks.jar LoopbackBenchmark -t 8
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(value = 1, jvmArgsAppend = {"-Dorg.slf4j.simpleLogger.defaultLogLevel=warn", "-Djmh.shutdownTimeout=1"})
+@State(Scope.Benchmark)
+public class LoopbackBenchmark {
+
+    /**
+     * 异步调用时每次同时发出的请求数
+     */
+    private static final int BATCH = 16;
+
+    @Param({"KRYO", "PROTOBUF"})
+    private SerializerCode serializer;
+
+    @Param({"16", "4096"})
+    private int messageLength;
+
+    private EventLoopGroup bossGroup;
+    private EventLoopGroup workerGroup;
+    private Channel        serverChannel;
+    private EchoService    echoService;
+    private String         message;
+
+    public interface EchoService {
+
+        String echo(String message);
+
+        CompletableFuture<String> echoAsync(String message);
+
+    }
+
+    public static class EchoServiceImpl implements EchoService {
+
+        @Override
+        public String echo(String message) {
+            return message;
+        }
+
+        @Override
+        public CompletableFuture<String> echoAsync(String message) {
+            return CompletableFuture.completedFuture(message);
+        }
+
+    }
+
+    @Setup
+    public void setup() throws Exception {
+        CommonSerializer commonSerializer = CommonSerializer.getByCode(serializer.getCode());
+        new ServiceProviderImpl().addServiceProvider(new EchoServiceImpl(), EchoService.class.getName());
+        bossGroup = NettyTransport.newEventLoopGroup(1, "bench-boss");
+        workerGroup = NettyTransport.newEventLoopGroup(0, "bench-worker");
+        serverChannel = new ServerBootstrap()
+                .group(bossGroup, workerGroup)
+                .channel(NettyTransport.serverChannelClass())
+                .childOption(ChannelOption.TCP_NODELAY, true)
+                .childHandler(new ChannelInitializer<SocketChannel>() {
+                    @Override
+                    protected void initChannel(SocketChannel ch) {
+                        ch.pipeline().addLast(new CommonEncoder(commonSerializer))
+                                .addLast(new CommonDecoder())
+                                .addLast(new NettyServerHandler());
+                    }
+                })
+                .bind("127.0.0.1", 0).sync().channel();
+        InMemoryServiceRegistry registry = new InMemoryServiceRegistry();
+        registry.register(EchoService.class.getName(), (InetSocketAddress) serverChannel.localAddress());
+        echoService = new RpcClientProxy(new NettyClient(serializer.getCode(), registry)).getProxy(EchoService.class);
+        message = Payloads.message(messageLength);
+        //第一次调用建立连接并完成握手，不计入测量
+        echoService.echo(message);
+    }
+
+    @TearDown
+    public void tearDown() {
+        serverChannel.close().syncUninterruptibly();
+        bossGroup.shutdownGracefully();
+        workerGroup.shutdownGracefully();
+    }
+
+    @Benchmark
+    public String syncCall() {
+        return echoService.echo(message);
+    }
+
+    /**
+     * 同一个线程连续发出多个异步调用再等待全部完成，衡量单连接上的多路复用
+     */
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public Object asyncBatch() {
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[BATCH];
+        for (int i = 0; i < BATCH; i++) {
+            futures[i] = echoService.echoAsync(message);
+        }
+        return CompletableFuture.allOf(futures).join();
+    }
+
+}
@@ -0,0 +1,42 @@
+package panda.rpc.benchmark;
+
+import panda.rpc.HelloObject;
+import panda.rpc.HelloService;
+import panda.rpc.entity.RpcRequest;
+import panda.rpc.entity.RpcResponse;
+
+/**
+ * 基准测试共用的请求和响应，模拟一次HelloService#hello调用
+ */
+final class Payloads {
+
+    private Payloads() {
+    }
+
+    /**
+     * @param messageLength HelloObject中消息的字符数，用来区分小消息和大消息
+     */
+    static RpcRequest request(int messageLength) {
+        RpcRequest request = new RpcRequest();
+        request.setInterfaceName(HelloService.class.getName());
+        request.setMethodName("hello");
+        request.setParameters(new Object[]{new HelloObject(114514, message(messageLength))});
+        request.setParamTypes(new Class<?>[]{HelloObject.class});
+        request.setHeartBeat(false);
+        request.setSequenceId(1);
+        return request;
+    }
+
+    static RpcResponse<String> response(RpcRequest request, int messageLength) {
+        return RpcResponse.success(message(messageLength), request);
+    }
+
+    static String message(int length) {
+        StringBuilder builder = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            builder.append((char) ('a' + i % 26));
+        }
+        return builder.toString();
+    }
+
+}
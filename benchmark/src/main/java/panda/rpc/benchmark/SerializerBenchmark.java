@@ -0,0 +1,76 @@
+package panda.rpc.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import panda.rpc.entity.RpcRequest;
+import panda.rpc.entity.RpcResponse;
+import panda.rpc.enumeration.SerializerCode;
+import panda.rpc.serializer.CommonSerializer;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 四种序列化器对请求和响应的序列化、反序列化开销
+ * 每个参数组合开始时打印序列化后的字节数
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dorg.slf4j.simpleLogger.defaultLogLevel=warn")
+@State(Scope.Thread)
+public class SerializerBenchmark {
+
+    @Param({"KRYO", "JSON", "HESSIAN", "PROTOBUF"})
+    private SerializerCode serializer;
+
+    @Param({"16", "4096"})
+    private int messageLength;
+
+    private CommonSerializer commonSerializer;
+    private RpcRequest       request;
+    private RpcResponse<?>   response;
+    private byte[]           requestBytes;
+    private byte[]           responseBytes;
+
+    @Setup
+    public void setup() {
+        commonSerializer = CommonSerializer.getByCode(serializer.getCode());
+        request = Payloads.request(messageLength);
+        response = Payloads.response(request, messageLength);
+        requestBytes = commonSerializer.serialize(request);
+        responseBytes = commonSerializer.serialize(response);
+        System.out.printf("%n%s messageLength=%d: request %d bytes, response %d bytes%n", serializer,
+                messageLength, requestBytes.length, responseBytes.length);
+    }
+
+    @Benchmark
+    public byte[] serializeRequest() {
+        return commonSerializer.serialize(request);
+    }
+
+    @Benchmark
+    public Object deserializeRequest() {
+        return commonSerializer.deserialize(requestBytes, RpcRequest.class);
+    }
+
+    @Benchmark
+    public byte[] serializeResponse() {
+        return commonSerializer.serialize(response);
+    }
+
+    @Benchmark
+    public Object deserializeResponse() {
+        return commonSerializer.deserialize(responseBytes, RpcResponse.class);
+    }
+
+}
@@ -0,0 +1,25 @@
+package panda.rpc.annotation;
+
+import panda.rpc.enumeration.CompressType;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 标识接口或方法的消息需要压缩，方法上的注解优先于接口上的注解
+ * 请求和对应的响应都只在消息体超过阈值时才压缩，压缩后没有变小时按原样发送
+ */
+@Target({ElementType.TYPE, ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Compress {
+
+    CompressType value() default CompressType.LZ4;
+
+    /**
+     * 触发压缩的消息体字节数
+     */
+    int threshold() default 4096;
+
+}
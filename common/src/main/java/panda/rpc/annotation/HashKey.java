@@ -0,0 +1,15 @@
+package panda.rpc.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 标识一致性哈希负载均衡按哪个参数路由，参数值相同的调用总是落到同一个实例上
+ * 按参数的toString计算哈希，参数类型需要有稳定的toString；没有标注时按第一个参数路由
+ */
+@Target(ElementType.PARAMETER)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface HashKey {
+}
@@ -0,0 +1,16 @@
+package panda.rpc.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 标记需要在编译期生成客户端存根的服务接口
+ * 接口所在模块引入processor模块后，编译时会在同一个包下生成 接口名_SrpcStub 类，
+ * 客户端获取代理时优先使用生成的存根，找不到时再退回到JDK动态代理
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface RpcStub {
+}
@@ -0,0 +1,21 @@
+package panda.rpc.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 调用超时时间，方法上的注解优先于接口上的注解
+ * 超时后调用方收到异常，之后到达的响应直接丢弃
+ */
+@Target({ElementType.TYPE, ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Timeout {
+
+    /**
+     * 超时时间，单位毫秒
+     */
+    long value();
+
+}
@@ -13,7 +13,7 @@ import java.io.Serializable;
 public class RpcRequest implements Serializable {
 
     /**
-     * 请求号
+     * 请求号，仅旧版(v1)协议使用，放在消息体中传输
      */
     private String requestId;
     /**
@@ -38,4 +38,50 @@ public class RpcRequest implements Serializable {
      */
     private Boolean heartBeat;
 
+    /**
+     * 数字请求号，v2协议放在帧头中传输，不参与序列化
+     */
+    private transient long sequenceId;
+
+    /**
+     * 压缩算法编号，为0时不压缩，v2协议放在帧头中传输，不参与序列化
+     */
+    private transient int compressType;
+
+    /**
+     * 消息体达到该字节数时才压缩
+     */
+    private transient int compressThreshold;
+
+    /**
+     * 调用超时时间，单位毫秒，只在客户端本地使用，不参与序列化
+     */
+    private transient long timeout;
+
+    /**
+     * 握手时服务端下发的方法编号，从1开始，0表示按接口名、方法名和参数类型调用
+     * 带编号的请求在v2帧头中传输编号，消息体中只有参数
+     */
+    private transient int methodId;
+
+    /**
+     * 方法签名，客户端据此查找方法编号，不参与序列化
+     */
+    private transient String methodSignature;
+
+    /**
+     * 一致性哈希负载均衡的路由参数，由{@link panda.rpc.annotation.HashKey}指定，只在客户端本地使用
+     */
+    private transient Object hashKey;
+
+    /**
+     * 服务端解码完成的时间，由System.nanoTime取得，用于统计请求等待执行的时间，不参与序列化
+     */
+    private transient long receiveNanos;
+
+    /**
+     * 被采样调用的各阶段时间点，未采样时为null，v2协议在帧头中带上采样标志，不参与序列化
+     */
+    private transient TraceSpan trace;
+
 }
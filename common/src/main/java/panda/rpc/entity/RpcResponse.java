@@ -13,7 +13,7 @@ import java.io.Serializable;
 public class RpcResponse<T> implements Serializable {
 
     /**
-     * 响应对应的请求号
+     * 响应对应的请求号，仅旧版(v1)协议使用，放在消息体中传输
      */
     private String requestId;
     /**
@@ -29,17 +29,42 @@ public class RpcResponse<T> implements Serializable {
      */
     private T data;
 
-    public static <T> RpcResponse<T> success(T data, String requestId) {
+    /**
+     * 响应对应的数字请求号，v2协议放在帧头中传输，不参与序列化
+     */
+    private transient long sequenceId;
+
+    /**
+     * 与请求相同的压缩设置，v2协议放在帧头中传输，不参与序列化
+     */
+    private transient int compressType;
+
+    private transient int compressThreshold;
+
+    /**
+     * 与请求相同的采样记录，服务端编码响应时把各阶段耗时写入帧头，不参与序列化
+     */
+    private transient TraceSpan trace;
+
+    public static <T> RpcResponse<T> success(T data, RpcRequest request) {
         RpcResponse<T> response = new RpcResponse<>();
-        response.setRequestId(requestId);
+        response.setRequestId(request.getRequestId());
+        response.setSequenceId(request.getSequenceId());
+        response.setCompressType(request.getCompressType());
+        response.setCompressThreshold(request.getCompressThreshold());
+        response.setTrace(request.getTrace());
         response.setStatusCode(ResponseCode.SUCCESS.getCode());
         response.setData(data);
         return response;
     }
 
-    public static <T> RpcResponse<T> fail(ResponseCode code, String requestId) {
+    public static <T> RpcResponse<T> fail(ResponseCode code, RpcRequest request) {
         RpcResponse<T> response = new RpcResponse<>();
-        response.setRequestId(requestId);
+        response.setRequestId(request.getRequestId());
+        response.setSequenceId(request.getSequenceId());
+        response.setCompressType(request.getCompressType());
+        response.setCompressThreshold(request.getCompressThreshold());
+        response.setTrace(request.getTrace());
         response.setStatusCode(code.getCode());
         response.setMessage(code.getMessage());
         return response;
@@ -0,0 +1,130 @@
+package panda.rpc.entity;
+
+import lombok.Data;
+
+/**
+ * 一次被采样调用在各阶段的时间点，由System.nanoTime取得，未经过的阶段为0
+ * 客户端和服务端各自记录一份，服务端在响应帧头中回传各阶段的耗时，
+ * 客户端据此把一次调用拆分成本地排队、编解码、网络和服务端排队、执行等阶段
+ */
+@Data
+public class TraceSpan {
+
+    /**
+     * 调用链标识，客户端采样时生成，随请求帧头传给服务端
+     */
+    private final long    traceId;
+    /**
+     * 为true时是服务端记录的一份
+     */
+    private final boolean server;
+
+    private String interfaceName;
+    private String methodName;
+    /**
+     * 失败时的异常类名或响应状态码
+     */
+    private String error;
+
+    /**
+     * 客户端：代理开始处理调用
+     */
+    private long startNanos;
+    /**
+     * 客户端：进入传输层，开始查找服务地址
+     */
+    private long sendNanos;
+    /**
+     * 客户端：拿到连接，交给事件循环写出
+     */
+    private long writeNanos;
+    private long encodeStartNanos;
+    private long encodeEndNanos;
+    private long decodeStartNanos;
+    private long decodeEndNanos;
+    /**
+     * 客户端：响应交给等待的future
+     */
+    private long completeNanos;
+    /**
+     * 客户端：代理把结果返回给调用方
+     */
+    private long endNanos;
+
+    /**
+     * 服务端：请求到达NettyServerHandler
+     */
+    private long handlerNanos;
+    /**
+     * 服务端：开始执行服务方法
+     */
+    private long invokeStartNanos;
+    /**
+     * 服务端：服务方法返回，异步方法为返回的future完成
+     */
+    private long invokeEndNanos;
+
+    /**
+     * 客户端：服务端回传的各阶段耗时，精度为微秒
+     */
+    private long serverDecodeNanos;
+    private long serverQueueNanos;
+    private long serverInvokeNanos;
+    private long serverReplyNanos;
+
+    /**
+     * 服务端记录的各阶段耗时，编码响应帧头时回传给客户端
+     */
+    public void computeServerPhases() {
+        serverDecodeNanos = between(decodeStartNanos, decodeEndNanos);
+        serverQueueNanos = between(decodeEndNanos, invokeStartNanos);
+        serverInvokeNanos = between(invokeStartNanos, invokeEndNanos);
+        serverReplyNanos = between(invokeEndNanos, encodeStartNanos);
+    }
+
+    /**
+     * 把响应上带回的服务端耗时和响应解码的时间点合并到客户端的记录中
+     */
+    public void merge(TraceSpan response) {
+        if (response == null) {
+            return;
+        }
+        decodeStartNanos = response.getDecodeStartNanos();
+        decodeEndNanos = response.getDecodeEndNanos();
+        completeNanos = response.getCompleteNanos();
+        serverDecodeNanos = response.getServerDecodeNanos();
+        serverQueueNanos = response.getServerQueueNanos();
+        serverInvokeNanos = response.getServerInvokeNanos();
+        serverReplyNanos = response.getServerReplyNanos();
+    }
+
+    /**
+     * @return 服务端从开始解码请求到开始编码响应的总耗时
+     */
+    public long getServerNanos() {
+        return serverDecodeNanos + serverQueueNanos + serverInvokeNanos + serverReplyNanos;
+    }
+
+    /**
+     * @return 请求发出到响应开始解码之间扣除服务端耗时的部分，包括网络往返和服务端编码响应的时间
+     */
+    public long getNetworkNanos() {
+        long roundTrip = between(encodeEndNanos, decodeStartNanos);
+        return roundTrip == 0 ? 0 : Math.max(roundTrip - getServerNanos(), 0);
+    }
+
+    public long getTotalNanos() {
+        return server ? between(decodeStartNanos, encodeEndNanos) : between(startNanos, endNanos);
+    }
+
+    /**
+     * @return 两个时间点之间的耗时，任一时间点没有记录时为0
+     */
+    public static long between(long from, long to) {
+        if (from == 0 || to == 0) {
+            return 0;
+        }
+        return Math.max(to - from, 0);
+    }
+
+}
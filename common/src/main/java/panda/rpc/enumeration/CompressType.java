@@ -0,0 +1,17 @@
+package panda.rpc.enumeration;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+
+@AllArgsConstructor
+@Getter
+public enum CompressType {
+
+    NONE(0),
+    LZ4(1),
+    DEFLATE(2);
+
+    private final int code;
+
+}
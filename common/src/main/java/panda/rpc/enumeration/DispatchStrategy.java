@@ -0,0 +1,21 @@
+package panda.rpc.enumeration;
+
+/**
+ * 服务端执行服务方法的线程模型
+ */
+public enum DispatchStrategy {
+
+    /**
+     * 直接在IO线程上执行，只适用于不会阻塞的快速方法
+     */
+    INLINE,
+    /**
+     * 提交到有界的业务线程池，队列满时直接返回服务端繁忙
+     */
+    POOL,
+    /**
+     * 每个请求一个虚拟线程，运行时不支持虚拟线程时退化为POOL
+     */
+    VIRTUAL_THREAD
+
+}
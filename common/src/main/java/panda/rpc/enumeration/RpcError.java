@@ -17,8 +17,12 @@ public enum RpcError {
     UNKNOWN_PROTOCOL("不识别的协议包"),
     UNKNOWN_SERIALIZER("不识别的(反)序列化器"),
     UNKNOWN_PACKAGE_TYPE("不识别的数据包类型"),
+    FRAME_TOO_LARGE("数据包长度超出限制"),
+    UNKNOWN_COMPRESS_TYPE("不识别的压缩算法"),
+    DECOMPRESS_FAILURE("数据包解压失败"),
     SERIALIZER_NOT_FOUND("找不到序列化器"),
     RESPONSE_NOT_MATCH("响应与请求号不匹配"),
+    REQUEST_TIMEOUT("请求超时"),
     FAILED_TO_CONNECT_TO_SERVICE_REGISTRY("连接注册中心失败"),
     REGISTER_SERVICE_FAILED("注册服务失败");
 
@@ -5,16 +5,28 @@ import panda.rpc.enumeration.RpcError;
 
 public class RpcException extends RuntimeException {
 
+    /**
+     * 异常对应的错误类型，只带消息构造时为null
+     */
+    private final RpcError error;
+
     public RpcException(RpcError error, String detail) {
         super(error.getMessage() + ": " + detail);
+        this.error = error;
     }
 
     public RpcException(String message, Throwable cause) {
         super(message, cause);
+        this.error = null;
     }
 
     public RpcException(RpcError error) {
         super(error.getMessage());
+        this.error = error;
+    }
+
+    public RpcError getError() {
+        return error;
     }
 
 }
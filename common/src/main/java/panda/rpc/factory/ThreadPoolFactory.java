@@ -39,6 +39,17 @@ public class ThreadPoolFactory {
 
     }
 
+    /**
+     * 单线程的定时任务线程池，使用守护线程，不阻止进程退出
+     */
+    public static ScheduledExecutorService createScheduledThreadPool(String threadNamePrefix) {
+        ExecutorService pool = threadPollsMap.compute(threadNamePrefix, (k, existing) ->
+                existing instanceof ScheduledExecutorService && !existing.isShutdown()
+                        ? existing
+                        : Executors.newSingleThreadScheduledExecutor(createThreadFactory(threadNamePrefix, true)));
+        return (ScheduledExecutorService) pool;
+    }
+
     public static void shutDownAll() {
         logger.info("关闭所有线程池...");
         threadPollsMap.entrySet().parallelStream().forEach(entry -> {
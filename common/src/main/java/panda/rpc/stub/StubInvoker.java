@@ -0,0 +1,31 @@
+package panda.rpc.stub;
+
+import java.lang.reflect.Method;
+
+/**
+ * 编译期生成的客户端存根通过该接口把调用交给传输层
+ * 存根在构造时为每个接口方法调用一次bind，之后的调用直接使用绑定结果，
+ * 不再经过动态代理的反射分发和按Method查找元数据
+ */
+public interface StubInvoker {
+
+    /**
+     * 生成的存根类名为 接口的二进制名 + 该后缀
+     */
+    String STUB_SUFFIX = "_SrpcStub";
+
+    /**
+     * 预先解析接口方法的调用元数据
+     */
+    Call bind(Method method);
+
+    /**
+     * 绑定了调用元数据的远程方法
+     */
+    interface Call {
+
+        Object invoke(Object[] args);
+
+    }
+
+}
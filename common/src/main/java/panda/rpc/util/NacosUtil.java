@@ -27,7 +27,7 @@ public class NacosUtil {
     private static final Set<String> serviceNames = new HashSet<>();
     private static InetSocketAddress address;
 
-    private static final String SERVER_ADDR = "127.0.0.1:8848";
+    private static final String SERVER_ADDR = System.getProperty("srpc.nacos.address", "127.0.0.1:8848");
 
     static {
         namingService = getNacosNamingService();
@@ -42,6 +42,13 @@ public class NacosUtil {
         }
     }
 
+    /**
+     * @return 进程内共用的NamingService
+     */
+    public static NamingService getNamingService() {
+        return namingService;
+    }
+
     public static void registerService(String serviceName, InetSocketAddress address) throws NacosException {
         namingService.registerInstance(serviceName, address.getHostName(), address.getPort());
         NacosUtil.address = address;
@@ -8,6 +8,8 @@ import panda.rpc.exception.RpcException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Objects;
+
 
 public class RpcMessageChecker {
 
@@ -23,7 +25,8 @@ public class RpcMessageChecker {
             throw new RpcException(RpcError.SERVICE_INVOCATION_FAILURE, INTERFACE_NAME + ":" + rpcRequest.getInterfaceName());
         }
 
-        if (!rpcRequest.getRequestId().equals(rpcResponse.getRequestId())) {
+        if (rpcRequest.getSequenceId() != rpcResponse.getSequenceId()
+                || !Objects.equals(rpcRequest.getRequestId(), rpcResponse.getRequestId())) {
             throw new RpcException(RpcError.RESPONSE_NOT_MATCH, INTERFACE_NAME + ":" + rpcRequest.getInterfaceName());
         }
 
@@ -1,5 +1,7 @@
 package panda.rpc.annotation;
 
+import panda.rpc.enumeration.DispatchStrategy;
+
 import java.lang.annotation.ElementType;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
@@ -14,4 +16,9 @@ public @interface Service {
 
     public String name() default "";
 
+    /**
+     * 服务方法在哪类线程上执行，Netty服务端有效
+     */
+    public DispatchStrategy dispatch() default DispatchStrategy.POOL;
+
 }
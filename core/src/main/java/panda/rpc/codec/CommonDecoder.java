@@ -1,55 +1,24 @@
 package panda.rpc.codec;
 
-import panda.rpc.entity.RpcRequest;
-import panda.rpc.entity.RpcResponse;
-import panda.rpc.enumeration.PackageType;
-import panda.rpc.enumeration.RpcError;
-import panda.rpc.exception.RpcException;
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
-import io.netty.handler.codec.ReplayingDecoder;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-import panda.rpc.serializer.CommonSerializer;
+import io.netty.handler.codec.ByteToMessageDecoder;
 
 import java.util.List;
 
 /**
  * 通用的解码拦截器
+ * 先根据帧头中的长度字段判断一帧是否完整，再直接从累积缓冲区中反序列化，不再额外拷贝数据
+ * 同时兼容v1和v2两个版本的帧格式，具体格式见 {@link FrameCodec}
  */
-public class CommonDecoder extends ReplayingDecoder {
-
-    private static final Logger logger       = LoggerFactory.getLogger(CommonDecoder.class);
-    private static final int    MAGIC_NUMBER = 0xCAFEBABE;
+public class CommonDecoder extends ByteToMessageDecoder {
 
     @Override
     protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) throws Exception {
-        int magic = in.readInt();
-        if (magic != MAGIC_NUMBER) {
-            logger.error("不识别的协议包: {}", magic);
-            throw new RpcException(RpcError.UNKNOWN_PROTOCOL);
-        }
-        int packageCode = in.readInt();
-        Class<?> packageClass;
-        if (packageCode == PackageType.REQUEST_PACK.getCode()) {
-            packageClass = RpcRequest.class;
-        } else if (packageCode == PackageType.RESPONSE_PACK.getCode()) {
-            packageClass = RpcResponse.class;
-        } else {
-            logger.error("不识别的数据包: {}", packageCode);
-            throw new RpcException(RpcError.UNKNOWN_PACKAGE_TYPE);
-        }
-        int serializerCode = in.readInt();
-        CommonSerializer serializer = CommonSerializer.getByCode(serializerCode);
-        if (serializer == null) {
-            logger.error("不识别的反序列化器: {}", serializerCode);
-            throw new RpcException(RpcError.UNKNOWN_SERIALIZER);
+        Object obj = FrameCodec.decode(in);
+        if (obj != null) {
+            out.add(obj);
         }
-        int length = in.readInt();
-        byte[] bytes = new byte[length];
-        in.readBytes(bytes);
-        Object obj = serializer.deserialize(bytes, packageClass);
-        out.add(obj);
     }
 
 }
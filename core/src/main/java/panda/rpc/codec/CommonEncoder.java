@@ -1,7 +1,5 @@
 package panda.rpc.codec;
 
-import panda.rpc.entity.RpcRequest;
-import panda.rpc.enumeration.PackageType;
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.MessageToByteEncoder;
@@ -12,8 +10,6 @@ import panda.rpc.serializer.CommonSerializer;
  */
 public class CommonEncoder extends MessageToByteEncoder {
 
-    private static final int MAGIC_NUMBER = 0xCAFEBABE;
-
     private final CommonSerializer serializer;
 
     public CommonEncoder(CommonSerializer serializer) {
@@ -22,16 +18,19 @@ public class CommonEncoder extends MessageToByteEncoder {
 
     @Override
     protected void encode(ChannelHandlerContext ctx, Object msg, ByteBuf out) throws Exception {
-        out.writeInt(MAGIC_NUMBER);
-        if (msg instanceof RpcRequest) {
-            out.writeInt(PackageType.REQUEST_PACK.getCode());
-        } else {
-            out.writeInt(PackageType.RESPONSE_PACK.getCode());
+        FrameCodec.encode(msg, serializer, out);
+    }
+
+    /**
+     * 按同类消息的历史大小分配初始缓冲区，减少大消息编码时的扩容拷贝
+     */
+    @Override
+    protected ByteBuf allocateBuffer(ChannelHandlerContext ctx, Object msg, boolean preferDirect) throws Exception {
+        int initialCapacity = FrameCodec.predictSize(msg);
+        if (preferDirect) {
+            return ctx.alloc().ioBuffer(initialCapacity);
         }
-        out.writeInt(serializer.getCode());
-        byte[] bytes = serializer.serialize(msg);
-        out.writeInt(bytes.length);
-        out.writeBytes(bytes);
+        return ctx.alloc().heapBuffer(initialCapacity);
     }
 
 }
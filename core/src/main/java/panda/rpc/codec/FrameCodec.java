@@ -0,0 +1,609 @@
+package panda.rpc.codec;
+
+import io.netty.buffer.ByteBuf;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import panda.rpc.compress.Compressor;
+import panda.rpc.entity.RpcRequest;
+import panda.rpc.entity.RpcResponse;
+import panda.rpc.entity.TraceSpan;
+import panda.rpc.enumeration.PackageType;
+import panda.rpc.enumeration.RpcError;
+import panda.rpc.exception.RpcException;
+import panda.rpc.metrics.CodecMetrics;
+import panda.rpc.metrics.RpcMetrics;
+import panda.rpc.serializer.BufferSerializer;
+import panda.rpc.serializer.CommonSerializer;
+import panda.rpc.trace.Tracer;
+
+/**
+ * 协议帧的编解码逻辑，Netty编解码器和Socket方式共用
+ *
+ * v1帧头固定16字节，请求号放在消息体中：
+ * +---------------+---------------+-----------------+-------------+
+ * |  Magic Number |  Package Type | Serializer Type | Data Length |
+ * |    4 bytes    |    4 bytes    |     4 bytes     |   4 bytes   |
+ * +---------------+---------------+-----------------+-------------+
+ *
+ * v2帧头把数字请求号放在帧头中，数据长度使用varint编码：
+ * +-------+---------+-------+------------+------------+-------------------+
+ * | Magic | Version | Flags | Serializer | Request Id |    Data Length    |
+ * | 2byte |  1 byte | 1 byte|   1 byte   |   8 bytes  | varint, 1~5 bytes |
+ * +-------+---------+-------+------------+------------+-------------------+
+ *
+ * Flags中带有FLAG_COMPRESS时，请求号之后依次是1字节的压缩算法编号和varint编码的压缩阈值，
+ * 对端应答时沿用同样的压缩设置；消息体实际被压缩时还会带上FLAG_COMPRESSED
+ * 请求的Flags中带有FLAG_METHOD_ID时，接下来是varint编码的方法编号，消息体中不再带接口名、方法名和参数类型
+ * Flags中带有FLAG_TRACE时表示该调用被采样：请求接下来是8字节的调用链标识，
+ * 响应接下来是服务端解码、排队、执行和等待写出四个阶段的耗时，单位微秒，各为一个varint
+ *
+ * 两个版本通过魔数区分。消息体里带有字符串请求号的消息按v1编码，
+ * 这样新版服务端可以原样应答旧版客户端，灰度期间新旧节点能够互通
+ */
+public class FrameCodec {
+
+    private static final Logger logger = LoggerFactory.getLogger(FrameCodec.class);
+
+    public static final int V1_MAGIC_NUMBER = 0xCAFEBABE;
+    public static final int V2_MAGIC_NUMBER = 0xBABE;
+    public static final int VERSION_2       = 2;
+
+    /**
+     * 为true时客户端按v1协议发送请求、不做方法编号握手，用于对接尚未升级的旧版服务端
+     */
+    public static final boolean LEGACY_PROTOCOL = Boolean.getBoolean("srpc.protocol.legacy");
+
+    /**
+     * v2帧头Flags中的标志位
+     */
+    public static final int FLAG_RESPONSE   = 0x01;
+    public static final int FLAG_COMPRESS   = 0x02;
+    public static final int FLAG_COMPRESSED = 0x04;
+    public static final int FLAG_METHOD_ID  = 0x08;
+    public static final int FLAG_TRACE      = 0x10;
+
+    private static final int V1_MAGIC_HIGH          = V1_MAGIC_NUMBER >>> 16;
+    private static final int V1_HEADER_LENGTH       = 16;
+    private static final int V2_FIXED_HEADER_LENGTH = 13;
+    private static final int MAX_VAR_INT_LENGTH     = 5;
+    private static final int MAX_FRAME_LENGTH       = 16 * 1024 * 1024;
+
+    private static final MessageSizePredictor sizePredictor = new MessageSizePredictor();
+
+    private FrameCodec() {
+    }
+
+    /**
+     * 预估msg编码后的帧大小，用于分配初始缓冲区
+     */
+    public static int predictSize(Object msg) {
+        return sizePredictor.predict(msg);
+    }
+
+    /**
+     * 把msg编码成一个完整的帧写入out
+     * 消息体直接序列化进out，写完后再回填长度字段
+     */
+    public static void encode(Object msg, CommonSerializer serializer, ByteBuf out) {
+        TraceSpan span = traceOf(msg);
+        if (span != null) {
+            span.setEncodeStartNanos(System.nanoTime());
+        }
+        int start = out.writerIndex();
+        if (isLegacy(msg)) {
+            encodeV1(msg, serializer, out);
+        } else {
+            encodeV2(msg, serializer, out);
+        }
+        int frameLength = out.writerIndex() - start;
+        sizePredictor.record(msg, frameLength);
+        CodecMetrics metrics = RpcMetrics.getCodec(serializer.getCode());
+        if (metrics != null) {
+            metrics.recordFrameOut(frameLength);
+        }
+        if (span != null) {
+            span.setEncodeEndNanos(System.nanoTime());
+            if (span.isServer()) {
+                //服务端的记录在响应写出时结束
+                Tracer.finish(span);
+            }
+        }
+    }
+
+    /**
+     * 根据in中已有的字节计算当前帧的总长度
+     *
+     * @return 帧头完整时返回整帧长度；帧头不完整时返回负数，其绝对值为至少还需要的字节数
+     */
+    public static int frameLength(ByteBuf in) {
+        int readable = in.readableBytes();
+        if (readable < 2) {
+            return readable - 2;
+        }
+        int start = in.readerIndex();
+        int magic = in.getUnsignedShort(start);
+        if (magic == V1_MAGIC_HIGH) {
+            if (readable < V1_HEADER_LENGTH) {
+                return readable - V1_HEADER_LENGTH;
+            }
+            if (in.getInt(start) != V1_MAGIC_NUMBER) {
+                logger.error("不识别的协议包: {}", in.getInt(start));
+                throw new RpcException(RpcError.UNKNOWN_PROTOCOL);
+            }
+            return V1_HEADER_LENGTH + checkLength(in.getInt(start + 12));
+        }
+        if (magic != V2_MAGIC_NUMBER) {
+            logger.error("不识别的协议包: {}", magic);
+            throw new RpcException(RpcError.UNKNOWN_PROTOCOL);
+        }
+        if (readable < V2_FIXED_HEADER_LENGTH + 1) {
+            return readable - V2_FIXED_HEADER_LENGTH - 1;
+        }
+        int version = in.getUnsignedByte(start + 2);
+        if (version != VERSION_2) {
+            logger.error("不识别的协议版本: {}", version);
+            throw new RpcException(RpcError.UNKNOWN_PROTOCOL);
+        }
+        int lengthIndex = v2LengthIndex(in, start);
+        if (lengthIndex < 0) {
+            return -1;
+        }
+        int lengthWidth = varIntWidth(in, lengthIndex);
+        if (lengthWidth < 0) {
+            return -1;
+        }
+        return lengthIndex - start + lengthWidth + checkLength(getVarInt(in, lengthIndex));
+    }
+
+    /**
+     * 从in中解码出一帧
+     *
+     * @return 数据不足一帧时返回null，且不移动读指针
+     */
+    public static Object decode(ByteBuf in) {
+        int frameLength = frameLength(in);
+        if (frameLength < 0 || in.readableBytes() < frameLength) {
+            return null;
+        }
+        int start = in.readerIndex();
+        if (in.getUnsignedShort(start) == V1_MAGIC_HIGH) {
+            Class<?> packageClass = packageClass(in.getInt(start + 4));
+            int serializerCode = in.getInt(start + 8);
+            Object obj = deserialize(in, start + V1_HEADER_LENGTH, frameLength - V1_HEADER_LENGTH,
+                    serializerCode, packageClass);
+            recordFrameIn(obj, serializerCode, frameLength);
+            if (obj instanceof RpcResponse) {
+                RpcResponse<?> response = (RpcResponse<?>) obj;
+                //旧版服务端原样带回的字符串请求号，由本端按数字生成
+                response.setSequenceId(parseSequenceId(response.getRequestId()));
+            }
+            return obj;
+        }
+        int flags = in.getUnsignedByte(start + 3);
+        long decodeStartNanos = (flags & FLAG_TRACE) != 0 ? System.nanoTime() : 0;
+        int serializerCode = in.getUnsignedByte(start + 4);
+        long sequenceId = in.getLong(start + 5);
+        int compressType = 0;
+        int compressThreshold = 0;
+        int methodId = 0;
+        int index = start + V2_FIXED_HEADER_LENGTH;
+        if ((flags & FLAG_COMPRESS) != 0) {
+            compressType = in.getUnsignedByte(index);
+            compressThreshold = getVarInt(in, index + 1);
+            index += 1 + varIntWidth(in, index + 1);
+        }
+        if ((flags & FLAG_METHOD_ID) != 0) {
+            methodId = getVarInt(in, index);
+            index += varIntWidth(in, index);
+        }
+        TraceSpan span = null;
+        if (decodeStartNanos != 0) {
+            span = readTrace(in, index, (flags & FLAG_RESPONSE) != 0);
+            span.setDecodeStartNanos(decodeStartNanos);
+        }
+        int lengthIndex = v2LengthIndex(in, start);
+        int bodyStart = lengthIndex + varIntWidth(in, lengthIndex);
+        int length = start + frameLength - bodyStart;
+        Class<?> packageClass = (flags & FLAG_RESPONSE) != 0 ? RpcResponse.class : RpcRequest.class;
+        Object obj;
+        if ((flags & FLAG_COMPRESSED) != 0) {
+            obj = decompressAndDeserialize(in, bodyStart, length, compressType, serializerCode, packageClass);
+        } else {
+            obj = deserialize(in, bodyStart, length, serializerCode, packageClass);
+        }
+        recordFrameIn(obj, serializerCode, frameLength);
+        if (span != null) {
+            span.setDecodeEndNanos(System.nanoTime());
+        }
+        if (obj instanceof RpcResponse) {
+            RpcResponse<?> response = (RpcResponse<?>) obj;
+            response.setSequenceId(sequenceId);
+            response.setCompressType(compressType);
+            response.setCompressThreshold(compressThreshold);
+            response.setTrace(span);
+            return response;
+        }
+        RpcRequest request = (RpcRequest) obj;
+        request.setSequenceId(sequenceId);
+        request.setCompressType(compressType);
+        request.setCompressThreshold(compressThreshold);
+        request.setMethodId(methodId);
+        request.setTrace(span);
+        return request;
+    }
+
+    /**
+     * 请求记下解码完成的时间，服务端据此计算排队时间，不论是否开启指标都要记录；开启指标时统计收到的帧
+     */
+    private static void recordFrameIn(Object obj, int serializerCode, int frameLength) {
+        if (obj instanceof RpcRequest) {
+            ((RpcRequest) obj).setReceiveNanos(System.nanoTime());
+        }
+        CodecMetrics metrics = RpcMetrics.getCodec(serializerCode);
+        if (metrics == null) {
+            return;
+        }
+        metrics.recordFrameIn(frameLength);
+    }
+
+    /**
+     * 请求帧头中是调用链标识，服务端据此开始自己的记录；响应帧头中是服务端各阶段的耗时
+     */
+    private static TraceSpan readTrace(ByteBuf in, int index, boolean response) {
+        if (!response) {
+            return new TraceSpan(in.getLong(index), true);
+        }
+        TraceSpan span = new TraceSpan(0, false);
+        span.setServerDecodeNanos(getVarInt(in, index) * 1000L);
+        index += varIntWidth(in, index);
+        span.setServerQueueNanos(getVarInt(in, index) * 1000L);
+        index += varIntWidth(in, index);
+        span.setServerInvokeNanos(getVarInt(in, index) * 1000L);
+        index += varIntWidth(in, index);
+        span.setServerReplyNanos(getVarInt(in, index) * 1000L);
+        return span;
+    }
+
+    private static void writeTrace(ByteBuf out, TraceSpan span) {
+        if (!span.isServer()) {
+            out.writeLong(span.getTraceId());
+            return;
+        }
+        span.computeServerPhases();
+        writeVarInt(out, micros(span.getServerDecodeNanos()));
+        writeVarInt(out, micros(span.getServerQueueNanos()));
+        writeVarInt(out, micros(span.getServerInvokeNanos()));
+        writeVarInt(out, micros(span.getServerReplyNanos()));
+    }
+
+    private static int micros(long nanos) {
+        return (int) Math.min(nanos / 1000, Integer.MAX_VALUE);
+    }
+
+    private static TraceSpan traceOf(Object msg) {
+        if (msg instanceof RpcRequest) {
+            return ((RpcRequest) msg).getTrace();
+        }
+        return msg instanceof RpcResponse ? ((RpcResponse<?>) msg).getTrace() : null;
+    }
+
+    private static boolean isLegacy(Object msg) {
+        if (msg instanceof RpcRequest) {
+            return ((RpcRequest) msg).getRequestId() != null;
+        }
+        return msg instanceof RpcResponse && ((RpcResponse<?>) msg).getRequestId() != null;
+    }
+
+    private static void encodeV1(Object msg, CommonSerializer serializer, ByteBuf out) {
+        out.writeInt(V1_MAGIC_NUMBER);
+        if (msg instanceof RpcRequest) {
+            out.writeInt(PackageType.REQUEST_PACK.getCode());
+        } else {
+            out.writeInt(PackageType.RESPONSE_PACK.getCode());
+        }
+        out.writeInt(serializer.getCode());
+        int lengthIndex = out.writerIndex();
+        out.writeInt(0);
+        serialize(msg, serializer, out);
+        out.setInt(lengthIndex, out.writerIndex() - lengthIndex - 4);
+    }
+
+    private static void encodeV2(Object msg, CommonSerializer serializer, ByteBuf out) {
+        int flags;
+        long sequenceId;
+        int compressType;
+        int compressThreshold;
+        int methodId = 0;
+        TraceSpan span = traceOf(msg);
+        if (msg instanceof RpcRequest) {
+            RpcRequest request = (RpcRequest) msg;
+            flags = 0;
+            sequenceId = request.getSequenceId();
+            compressType = request.getCompressType();
+            compressThreshold = request.getCompressThreshold();
+            methodId = request.getMethodId();
+        } else {
+            RpcResponse<?> response = (RpcResponse<?>) msg;
+            flags = FLAG_RESPONSE;
+            sequenceId = response.getSequenceId();
+            compressType = response.getCompressType();
+            compressThreshold = response.getCompressThreshold();
+        }
+        if (compressType != 0) {
+            flags |= FLAG_COMPRESS;
+        }
+        if (methodId != 0) {
+            flags |= FLAG_METHOD_ID;
+        }
+        if (span != null) {
+            flags |= FLAG_TRACE;
+        }
+        out.writeShort(V2_MAGIC_NUMBER);
+        out.writeByte(VERSION_2);
+        int flagsIndex = out.writerIndex();
+        out.writeByte(flags);
+        out.writeByte(serializer.getCode());
+        out.writeLong(sequenceId);
+        if (compressType != 0) {
+            out.writeByte(compressType);
+            writeVarInt(out, compressThreshold);
+        }
+        if (methodId != 0) {
+            writeVarInt(out, methodId);
+        }
+        if (span != null) {
+            writeTrace(out, span);
+        }
+        //长度字段按预估大小预留宽度，写完消息体后再回填
+        int lengthIndex = out.writerIndex();
+        int lengthWidth = varIntSize(sizePredictor.predict(msg));
+        out.writeZero(lengthWidth);
+        serialize(msg, serializer, out);
+        int length = out.writerIndex() - lengthIndex - lengthWidth;
+        if (compressType != 0 && length >= compressThreshold) {
+            int compressedLength = compress(out, lengthIndex + lengthWidth, length, compressType);
+            if (compressedLength >= 0) {
+                out.setByte(flagsIndex, flags | FLAG_COMPRESSED);
+                length = compressedLength;
+            }
+        }
+        if (varIntSize(length) <= lengthWidth) {
+            setVarInt(out, lengthIndex, length, lengthWidth);
+            return;
+        }
+        //预留的宽度不够，把消息体整体后移，只有消息突然变大时才会发生
+        ByteBuf body = out.copy(lengthIndex + lengthWidth, length);
+        try {
+            out.writerIndex(lengthIndex);
+            out.writeZero(varIntSize(length));
+            setVarInt(out, lengthIndex, length, varIntSize(length));
+            out.writeBytes(body);
+        } finally {
+            body.release();
+        }
+    }
+
+    /**
+     * 把out中从bodyStart开始的消息体原地替换成压缩后的数据
+     *
+     * @return 压缩后的长度，压缩后没有变小时返回-1，out保持不变
+     */
+    private static int compress(ByteBuf out, int bodyStart, int length, int compressType) {
+        Compressor compressor = Compressor.getByCode(compressType);
+        if (compressor == null) {
+            logger.error("不识别的压缩算法: {}", compressType);
+            throw new RpcException(RpcError.UNKNOWN_COMPRESS_TYPE);
+        }
+        ByteBuf compressed = out.alloc().heapBuffer(length / 2);
+        try {
+            compressor.compress(out.slice(bodyStart, length), compressed);
+            int compressedLength = compressed.readableBytes();
+            if (compressedLength >= length) {
+                return -1;
+            }
+            out.writerIndex(bodyStart);
+            out.writeBytes(compressed);
+            return compressedLength;
+        } finally {
+            compressed.release();
+        }
+    }
+
+    private static Object decompressAndDeserialize(ByteBuf in, int bodyStart, int length, int compressType,
+                                                   int serializerCode, Class<?> packageClass) {
+        Compressor compressor = Compressor.getByCode(compressType);
+        if (compressor == null) {
+            logger.error("不识别的压缩算法: {}", compressType);
+            throw new RpcException(RpcError.UNKNOWN_COMPRESS_TYPE);
+        }
+        in.readerIndex(bodyStart);
+        ByteBuf raw;
+        try {
+            raw = compressor.decompress(in, length, in.alloc());
+        } finally {
+            //解压失败时也跳过整个消息体，不影响后续帧的解析
+            in.readerIndex(bodyStart + length);
+        }
+        try {
+            return deserialize(raw, raw.readerIndex(), raw.readableBytes(), serializerCode, packageClass);
+        } finally {
+            raw.release();
+        }
+    }
+
+    private static void serialize(Object msg, CommonSerializer serializer, ByteBuf out) {
+        CodecMetrics metrics = RpcMetrics.getCodec(serializer.getCode());
+        long startNanos = metrics == null ? 0 : System.nanoTime();
+        if (serializer instanceof BufferSerializer) {
+            ((BufferSerializer) serializer).serialize(msg, out);
+        } else {
+            out.writeBytes(serializer.serialize(msg));
+        }
+        if (metrics != null) {
+            metrics.recordSerialize(System.nanoTime() - startNanos);
+        }
+    }
+
+    private static Object deserialize(ByteBuf in, int bodyStart, int length, int serializerCode, Class<?> packageClass) {
+        CommonSerializer serializer = CommonSerializer.getByCode(serializerCode);
+        if (serializer == null) {
+            logger.error("不识别的反序列化器: {}", serializerCode);
+            throw new RpcException(RpcError.UNKNOWN_SERIALIZER);
+        }
+        in.readerIndex(bodyStart);
+        CodecMetrics metrics = RpcMetrics.getCodec(serializerCode);
+        long startNanos = metrics == null ? 0 : System.nanoTime();
+        try {
+            Object obj;
+            if (serializer instanceof BufferSerializer) {
+                obj = ((BufferSerializer) serializer).deserialize(in, length, packageClass);
+            } else {
+                byte[] bytes = new byte[length];
+                in.readBytes(bytes);
+                obj = serializer.deserialize(bytes, packageClass);
+            }
+            if (metrics != null) {
+                metrics.recordDeserialize(System.nanoTime() - startNanos);
+            }
+            return obj;
+        } finally {
+            //反序列化失败时也跳过整个消息体，不影响后续帧的解析
+            in.readerIndex(bodyStart + length);
+        }
+    }
+
+    private static Class<?> packageClass(int packageCode) {
+        if (packageCode == PackageType.REQUEST_PACK.getCode()) {
+            return RpcRequest.class;
+        } else if (packageCode == PackageType.RESPONSE_PACK.getCode()) {
+            return RpcResponse.class;
+        }
+        logger.error("不识别的数据包: {}", packageCode);
+        throw new RpcException(RpcError.UNKNOWN_PACKAGE_TYPE);
+    }
+
+    private static int checkLength(int length) {
+        if (length < 0 || length > MAX_FRAME_LENGTH) {
+            logger.error("数据包长度不合法: {}", length);
+            throw new RpcException(RpcError.FRAME_TOO_LARGE);
+        }
+        return length;
+    }
+
+    private static long parseSequenceId(String requestId) {
+        if (requestId == null || requestId.isEmpty() || requestId.length() > 18) {
+            return 0;
+        }
+        long value = 0;
+        for (int i = 0; i < requestId.length(); i++) {
+            char c = requestId.charAt(i);
+            if (c < '0' || c > '9') {
+                return 0;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    /**
+     * @return v2帧头中长度字段的位置，可选字段不完整时返回-1
+     */
+    private static int v2LengthIndex(ByteBuf in, int start) {
+        int index = start + V2_FIXED_HEADER_LENGTH;
+        int flags = in.getUnsignedByte(start + 3);
+        if ((flags & FLAG_COMPRESS) != 0) {
+            if (index + 1 >= in.writerIndex()) {
+                return -1;
+            }
+            int thresholdWidth = varIntWidth(in, index + 1);
+            if (thresholdWidth < 0) {
+                return -1;
+            }
+            index += 1 + thresholdWidth;
+        }
+        if ((flags & FLAG_METHOD_ID) != 0) {
+            int methodIdWidth = varIntWidth(in, index);
+            if (methodIdWidth < 0) {
+                return -1;
+            }
+            index += methodIdWidth;
+        }
+        if ((flags & FLAG_TRACE) != 0) {
+            if ((flags & FLAG_RESPONSE) == 0) {
+                return index + 8;
+            }
+            for (int i = 0; i < 4; i++) {
+                int width = varIntWidth(in, index);
+                if (width < 0) {
+                    return -1;
+                }
+                index += width;
+            }
+        }
+        return index;
+    }
+
+    static int varIntSize(int value) {
+        if ((value & (~0 << 7)) == 0) {
+            return 1;
+        }
+        if ((value & (~0 << 14)) == 0) {
+            return 2;
+        }
+        if ((value & (~0 << 21)) == 0) {
+            return 3;
+        }
+        if ((value & (~0 << 28)) == 0) {
+            return 4;
+        }
+        return 5;
+    }
+
+    static void writeVarInt(ByteBuf out, int value) {
+        int width = varIntSize(value);
+        out.ensureWritable(width);
+        setVarInt(out, out.writerIndex(), value, width);
+        out.writerIndex(out.writerIndex() + width);
+    }
+
+    /**
+     * 在index处写入占满width个字节的varint，不足的高位用延续位补齐，解码结果与最短编码一致
+     */
+    static void setVarInt(ByteBuf out, int index, int value, int width) {
+        for (int i = 0; i < width - 1; i++) {
+            out.setByte(index + i, (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.setByte(index + width - 1, value & 0x7F);
+    }
+
+    /**
+     * @return index处varint占用的字节数，字节不足时返回-1
+     */
+    static int varIntWidth(ByteBuf in, int index) {
+        int end = in.writerIndex();
+        for (int i = 0; i < MAX_VAR_INT_LENGTH; i++) {
+            if (index + i >= end) {
+                return -1;
+            }
+            if ((in.getByte(index + i) & 0x80) == 0) {
+                return i + 1;
+            }
+        }
+        logger.error("数据包长度字段不合法");
+        throw new RpcException(RpcError.UNKNOWN_PROTOCOL);
+    }
+
+    static int getVarInt(ByteBuf in, int index) {
+        int value = 0;
+        for (int i = 0; i < MAX_VAR_INT_LENGTH; i++) {
+            byte b = in.getByte(index + i);
+            value |= (b & 0x7F) << (7 * i);
+            if ((b & 0x80) == 0) {
+                break;
+            }
+        }
+        return value;
+    }
+
+}
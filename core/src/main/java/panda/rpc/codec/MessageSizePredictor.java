@@ -0,0 +1,59 @@
+package panda.rpc.codec;
+
+import panda.rpc.entity.RpcResponse;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 按消息类型记录编码后的帧大小，用来预估下一次编码时的初始缓冲区大小
+ * 变大时立即跟上，变小时缓慢回落，这样大响应不会每次都经历多次扩容拷贝
+ */
+class MessageSizePredictor {
+
+    private static final int DEFAULT_SIZE = 256;
+    private static final int MIN_SIZE     = 64;
+    private static final int MAX_SIZE     = 4 * 1024 * 1024;
+
+    private final Map<Class<?>, AtomicInteger> history = new ConcurrentHashMap<>();
+
+    int predict(Object msg) {
+        AtomicInteger size = history.get(typeOf(msg));
+        return size == null ? DEFAULT_SIZE : size.get();
+    }
+
+    void record(Object msg, int actualSize) {
+        Class<?> type = typeOf(msg);
+        AtomicInteger size = history.get(type);
+        if (size == null) {
+            size = history.computeIfAbsent(type, k -> new AtomicInteger(DEFAULT_SIZE));
+        }
+        int previous = size.get();
+        int next;
+        if (actualSize > previous) {
+            next = actualSize;
+        } else {
+            //每次回落差值的1/8，偶发的小消息不会让预估值骤降
+            next = previous - ((previous - actualSize) >> 3);
+        }
+        next = Math.max(MIN_SIZE, Math.min(MAX_SIZE, next));
+        if (next != previous) {
+            size.lazySet(next);
+        }
+    }
+
+    /**
+     * 响应按返回值的类型区分，请求按消息本身的类型区分
+     */
+    private static Class<?> typeOf(Object msg) {
+        if (msg instanceof RpcResponse) {
+            Object data = ((RpcResponse<?>) msg).getData();
+            if (data != null) {
+                return data.getClass();
+            }
+        }
+        return msg.getClass();
+    }
+
+}
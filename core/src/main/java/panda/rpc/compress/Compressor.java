@@ -0,0 +1,45 @@
+package panda.rpc.compress;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+
+/**
+ * 消息体压缩算法，实现必须是线程安全的
+ * 压缩结果以4字节的原始长度开头，解压时据此一次分配好目标缓冲区
+ */
+public interface Compressor {
+
+    /**
+     * 解压后允许的最大长度，防止构造的数据包撑爆内存
+     */
+    int MAX_DECOMPRESSED_LENGTH = 64 * 1024 * 1024;
+
+    Compressor LZ4     = new Lz4Compressor();
+    Compressor DEFLATE = new DeflateCompressor();
+
+    static Compressor getByCode(int code) {
+        switch (code) {
+            case 1:
+                return LZ4;
+            case 2:
+                return DEFLATE;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * 压缩in中全部可读字节并追加到out，不移动in的读指针
+     */
+    void compress(ByteBuf in, ByteBuf out);
+
+    /**
+     * 解压in从读指针开始的length个字节
+     *
+     * @return 新分配的缓冲区，由调用方负责释放
+     */
+    ByteBuf decompress(ByteBuf in, int length, ByteBufAllocator alloc);
+
+    int getCode();
+
+}
@@ -0,0 +1,106 @@
+package panda.rpc.compress;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import panda.rpc.enumeration.CompressType;
+import panda.rpc.enumeration.RpcError;
+import panda.rpc.exception.RpcException;
+
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Deflate压缩，基于JDK自带的java.util.zip
+ * 比LZ4慢但压缩率更高，适合带宽受限的场景
+ * Deflater和Inflater创建时会分配本地内存，按线程复用
+ */
+public class DeflateCompressor implements Compressor {
+
+    private static final Logger logger = LoggerFactory.getLogger(DeflateCompressor.class);
+
+    private static final int CHUNK_SIZE = 8192;
+
+    private static final ThreadLocal<Deflater> deflaterThreadLocal =
+            ThreadLocal.withInitial(() -> new Deflater(Deflater.BEST_SPEED));
+    private static final ThreadLocal<Inflater> inflaterThreadLocal =
+            ThreadLocal.withInitial(Inflater::new);
+
+    @Override
+    public void compress(ByteBuf in, ByteBuf out) {
+        int length = in.readableBytes();
+        Deflater deflater = deflaterThreadLocal.get();
+        deflater.reset();
+        if (in.hasArray()) {
+            deflater.setInput(in.array(), in.arrayOffset() + in.readerIndex(), length);
+        } else {
+            byte[] bytes = new byte[length];
+            in.getBytes(in.readerIndex(), bytes);
+            deflater.setInput(bytes);
+        }
+        deflater.finish();
+        out.writeInt(length);
+        byte[] chunk = out.hasArray() ? null : new byte[CHUNK_SIZE];
+        while (!deflater.finished()) {
+            out.ensureWritable(CHUNK_SIZE);
+            if (chunk == null) {
+                int n = deflater.deflate(out.array(), out.arrayOffset() + out.writerIndex(), out.writableBytes());
+                out.writerIndex(out.writerIndex() + n);
+            } else {
+                int n = deflater.deflate(chunk);
+                out.writeBytes(chunk, 0, n);
+            }
+        }
+    }
+
+    @Override
+    public ByteBuf decompress(ByteBuf in, int length, ByteBufAllocator alloc) {
+        if (length < 4) {
+            //消息体连开头的原始长度都放不下，不能越过本帧去读后续帧的数据
+            logger.error("压缩数据长度不合法: {}", length);
+            throw new RpcException(RpcError.DECOMPRESS_FAILURE);
+        }
+        int rawLength = in.readInt();
+        if (rawLength < 0 || rawLength > MAX_DECOMPRESSED_LENGTH) {
+            logger.error("解压后长度不合法: {}", rawLength);
+            throw new RpcException(RpcError.DECOMPRESS_FAILURE);
+        }
+        Inflater inflater = inflaterThreadLocal.get();
+        inflater.reset();
+        if (in.hasArray()) {
+            inflater.setInput(in.array(), in.arrayOffset() + in.readerIndex(), length - 4);
+        } else {
+            byte[] bytes = new byte[length - 4];
+            in.getBytes(in.readerIndex(), bytes);
+            inflater.setInput(bytes);
+        }
+        ByteBuf out = alloc.heapBuffer(rawLength);
+        try {
+            int n = 0;
+            while (n < rawLength && !inflater.finished()) {
+                int inflated = inflater.inflate(out.array(), out.arrayOffset() + n, rawLength - n);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                n += inflated;
+            }
+            if (n != rawLength) {
+                throw new DataFormatException("expected " + rawLength + " bytes but got " + n);
+            }
+            out.writerIndex(rawLength);
+            return out;
+        } catch (DataFormatException e) {
+            out.release();
+            logger.error("Deflate解压时有错误发生:", e);
+            throw new RpcException(RpcError.DECOMPRESS_FAILURE);
+        }
+    }
+
+    @Override
+    public int getCode() {
+        return CompressType.DEFLATE.getCode();
+    }
+
+}
@@ -0,0 +1,81 @@
+package panda.rpc.compress;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Exception;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4SafeDecompressor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import panda.rpc.enumeration.CompressType;
+import panda.rpc.enumeration.RpcError;
+import panda.rpc.exception.RpcException;
+
+import java.nio.ByteBuffer;
+
+/**
+ * LZ4压缩，使用纯Java实现，不依赖本地库
+ * 压缩率不高但速度快，适合对延迟敏感的调用
+ */
+public class Lz4Compressor implements Compressor {
+
+    private static final Logger logger = LoggerFactory.getLogger(Lz4Compressor.class);
+
+    private final LZ4Compressor       compressor;
+    private final LZ4SafeDecompressor decompressor;
+
+    public Lz4Compressor() {
+        LZ4Factory factory = LZ4Factory.fastestJavaInstance();
+        this.compressor = factory.fastCompressor();
+        this.decompressor = factory.safeDecompressor();
+    }
+
+    @Override
+    public void compress(ByteBuf in, ByteBuf out) {
+        int length = in.readableBytes();
+        int maxLength = compressor.maxCompressedLength(length);
+        out.ensureWritable(4 + maxLength);
+        out.writeInt(length);
+        int index = out.writerIndex();
+        ByteBuffer src = in.nioBuffer();
+        ByteBuffer dest = out.nioBuffer(index, maxLength);
+        int compressedLength = compressor.compress(src, src.position(), length, dest, dest.position(), maxLength);
+        out.writerIndex(index + compressedLength);
+    }
+
+    @Override
+    public ByteBuf decompress(ByteBuf in, int length, ByteBufAllocator alloc) {
+        if (length < 4) {
+            //消息体连开头的原始长度都放不下，不能越过本帧去读后续帧的数据
+            logger.error("压缩数据长度不合法: {}", length);
+            throw new RpcException(RpcError.DECOMPRESS_FAILURE);
+        }
+        int rawLength = in.readInt();
+        if (rawLength < 0 || rawLength > MAX_DECOMPRESSED_LENGTH) {
+            logger.error("解压后长度不合法: {}", rawLength);
+            throw new RpcException(RpcError.DECOMPRESS_FAILURE);
+        }
+        ByteBuf out = alloc.heapBuffer(rawLength);
+        try {
+            ByteBuffer src = in.nioBuffer(in.readerIndex(), length - 4);
+            ByteBuffer dest = out.nioBuffer(0, rawLength);
+            int n = decompressor.decompress(src, src.position(), length - 4, dest, dest.position(), rawLength);
+            if (n != rawLength) {
+                throw new LZ4Exception("expected " + rawLength + " bytes but got " + n);
+            }
+            out.writerIndex(rawLength);
+            return out;
+        } catch (LZ4Exception e) {
+            out.release();
+            logger.error("LZ4解压时有错误发生:", e);
+            throw new RpcException(RpcError.DECOMPRESS_FAILURE);
+        }
+    }
+
+    @Override
+    public int getCode() {
+        return CompressType.LZ4.getCode();
+    }
+
+}
@@ -2,14 +2,18 @@ package panda.rpc.handler;
 
 import panda.rpc.entity.RpcRequest;
 import panda.rpc.entity.RpcResponse;
+import panda.rpc.entity.TraceSpan;
+import panda.rpc.enumeration.DispatchStrategy;
 import panda.rpc.enumeration.ResponseCode;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import panda.rpc.metrics.MethodMetrics;
+import panda.rpc.provider.MethodInvoker;
 import panda.rpc.provider.ServiceProvider;
 import panda.rpc.provider.ServiceProviderImpl;
 
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.CompletionStage;
 
 /**
  * 进行过程调用的处理器
@@ -23,19 +27,108 @@ public class RequestHandler {
         serviceProvider = new ServiceProviderImpl();
     }
 
+    /**
+     * @return 请求对应服务的执行策略，服务不存在时返回INLINE，由handle直接报错
+     */
+    public DispatchStrategy getDispatchStrategy(RpcRequest rpcRequest) {
+        DispatchStrategy strategy = serviceProvider.getDispatchStrategy(rpcRequest.getInterfaceName());
+        return strategy == null ? DispatchStrategy.INLINE : strategy;
+    }
+
+    /**
+     * 把只带方法编号的请求补全接口名、方法名和参数类型
+     *
+     * @return 编号对应的方法不存在时返回false
+     */
+    public boolean resolveMethodId(RpcRequest rpcRequest) {
+        MethodInvoker invoker = serviceProvider.getMethodInvoker(rpcRequest.getMethodId());
+        if (invoker == null) {
+            return false;
+        }
+        rpcRequest.setInterfaceName(invoker.getServiceName());
+        rpcRequest.setMethodName(invoker.getMethodName());
+        rpcRequest.setParamTypes(invoker.getParamTypes());
+        return true;
+    }
+
+    /**
+     * @return 握手时下发给客户端的方法编号表
+     */
+    public Map<String, Integer> getMethodIds() {
+        return serviceProvider.getMethodIds();
+    }
+
     public Object handle(RpcRequest rpcRequest) {
-        Object service = serviceProvider.getServiceProvider(rpcRequest.getInterfaceName());
-        return invokeTargetMethod(rpcRequest, service);
+        MethodInvoker invoker = rpcRequest.getMethodId() != 0
+                ? serviceProvider.getMethodInvoker(rpcRequest.getMethodId())
+                : serviceProvider.getMethodInvoker(rpcRequest.getInterfaceName(), rpcRequest.getMethodName(),
+                        rpcRequest.getParamTypes());
+        if (invoker == null) {
+            return RpcResponse.fail(ResponseCode.METHOD_NOT_FOUND, rpcRequest);
+        }
+        TraceSpan span = rpcRequest.getTrace();
+        if (span != null) {
+            span.setInterfaceName(rpcRequest.getInterfaceName());
+            span.setMethodName(rpcRequest.getMethodName());
+            span.setInvokeStartNanos(System.nanoTime());
+        }
+        MethodMetrics metrics = invoker.getMetrics();
+        if (metrics == null) {
+            return trace(span, invokeTargetMethod(rpcRequest, invoker));
+        }
+        long startNanos = System.nanoTime();
+        if (rpcRequest.getReceiveNanos() != 0) {
+            metrics.recordQueueWait(startNanos - rpcRequest.getReceiveNanos());
+        }
+        Object result = trace(span, invokeTargetMethod(rpcRequest, invoker));
+        if (result instanceof CompletionStage) {
+            //异步方法的执行时间算到返回的future完成为止
+            ((CompletionStage<?>) result).whenComplete(
+                    (data, e) -> metrics.record(System.nanoTime() - startNanos, e != null));
+        } else {
+            metrics.record(System.nanoTime() - startNanos, isFailure(result));
+        }
+        return result;
+    }
+
+    /**
+     * 记下服务方法结束的时间，异步方法返回在记录之后才完成的future，保证写出响应时执行时间已经记下
+     */
+    private static Object trace(TraceSpan span, Object result) {
+        if (span == null) {
+            return result;
+        }
+        if (result instanceof CompletionStage) {
+            return ((CompletionStage<?>) result).whenComplete((data, e) -> {
+                span.setInvokeEndNanos(System.nanoTime());
+                if (e != null) {
+                    span.setError(e.getClass().getName());
+                }
+            });
+        }
+        span.setInvokeEndNanos(System.nanoTime());
+        if (isFailure(result)) {
+            span.setError(String.valueOf(((RpcResponse<?>) result).getStatusCode()));
+        }
+        return result;
+    }
+
+    private static boolean isFailure(Object result) {
+        if (!(result instanceof RpcResponse)) {
+            return false;
+        }
+        Integer statusCode = ((RpcResponse<?>) result).getStatusCode();
+        return statusCode == null || statusCode != ResponseCode.SUCCESS.getCode();
     }
 
-    private Object invokeTargetMethod(RpcRequest rpcRequest, Object service) {
+    private Object invokeTargetMethod(RpcRequest rpcRequest, MethodInvoker invoker) {
         Object result;
         try {
-            Method method = service.getClass().getMethod(rpcRequest.getMethodName(), rpcRequest.getParamTypes());
-            result = method.invoke(service, rpcRequest.getParameters());
-            logger.info("服务:{} 成功调用方法:{}", rpcRequest.getInterfaceName(), rpcRequest.getMethodName());
-        } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
-            return RpcResponse.fail(ResponseCode.METHOD_NOT_FOUND, rpcRequest.getRequestId());
+            result = invoker.invoke(rpcRequest.getParameters());
+            logger.debug("服务:{} 成功调用方法:{}", rpcRequest.getInterfaceName(), rpcRequest.getMethodName());
+        } catch (Throwable e) {
+            logger.error("服务:{} 调用方法:{} 时有错误发生", rpcRequest.getInterfaceName(), rpcRequest.getMethodName(), e);
+            return RpcResponse.fail(ResponseCode.FAIL, rpcRequest);
         }
         return result;
     }
@@ -3,7 +3,8 @@ package panda.rpc.hook;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import panda.rpc.factory.ThreadPoolFactory;
-import panda.rpc.util.NacosUtil;
+import panda.rpc.registry.ServiceRegistry;
+import panda.rpc.transport.netty.NettyTransport;
 
 public class ShutdownHook {
 
@@ -15,11 +16,12 @@ public class ShutdownHook {
         return shutdownHook;
     }
 
-    public void addClearAllHook() {
+    public void addClearAllHook(ServiceRegistry serviceRegistry) {
         logger.info("关闭后将自动注销所有服务");
         Runtime.getRuntime().addShutdownHook(new Thread(() -> {
-            NacosUtil.clearRegistry();
+            serviceRegistry.clearRegistry();
             ThreadPoolFactory.shutDownAll();
+            NettyTransport.shutdownGracefully();
         }));
     }
 
@@ -0,0 +1,119 @@
+package panda.rpc.loadbalancer;
+
+import com.alibaba.nacos.api.naming.pojo.Instance;
+import panda.rpc.entity.RpcRequest;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 一致性哈希：按{@link panda.rpc.annotation.HashKey}标注的参数路由，参数值相同的调用落到同一个实例上，
+ * 适合服务端按键缓存数据的场景
+ * 每个实例在哈希环上放置若干虚拟节点，数量与权重成正比，单个实例最多为权重1时的{@value #MAX_REPLICA_RATIO}倍；
+ * 实例增减时只有相邻区间的键改变归属。
+ * 只有已启用且健康的实例放到环上；哈希环在实例列表变化时才重建，选择实例只做一次二分查找
+ */
+public class ConsistentHashLoadBalancer extends SnapshotLoadBalancer<ConsistentHashLoadBalancer.Ring> {
+
+    /**
+     * 权重为1的实例放置的虚拟节点数
+     */
+    private static final int VIRTUAL_NODES = Integer.getInteger("srpc.loadbalancer.virtualNodes", 160);
+    /**
+     * 单个实例虚拟节点数的上限是权重为1时的倍数，最大权重超过该倍数时所有实例按比例缩小
+     */
+    private static final int MAX_REPLICA_RATIO = 10;
+
+    @Override
+    public Instance select(List<Instance> instances) {
+        return select(instances, null, null);
+    }
+
+    @Override
+    protected Ring build(List<Instance> instances) {
+        return new Ring(available(instances));
+    }
+
+    @Override
+    protected Instance select(Ring ring, RpcRequest request) {
+        return ring.select(hash(keyOf(request)));
+    }
+
+    private static String keyOf(RpcRequest request) {
+        if (request == null) {
+            return "";
+        }
+        Object hashKey = request.getHashKey();
+        if (hashKey == null) {
+            return request.getInterfaceName() + '#' + request.getMethodName();
+        }
+        return hashKey.toString();
+    }
+
+    /**
+     * 64位FNV-1a再经过MurmurHash3的fmix64打散，不同客户端对同一个键算出的位置相同
+     */
+    static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b & 0xff;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    static final class Ring {
+
+        private final long[]     points;
+        private final Instance[] owners;
+
+        private Ring(List<Instance> instances) {
+            double maxWeight = 0;
+            for (Instance instance : instances) {
+                maxWeight = Math.max(maxWeight, instance.getWeight());
+            }
+            //按最大权重归一化，最大权重的实例最多放置 VIRTUAL_NODES * MAX_REPLICA_RATIO 个虚拟节点
+            double scale = maxWeight > MAX_REPLICA_RATIO ? VIRTUAL_NODES * MAX_REPLICA_RATIO / maxWeight : VIRTUAL_NODES;
+            List<long[]> nodes = new ArrayList<>();
+            for (int i = 0; i < instances.size(); i++) {
+                Instance instance = instances.get(i);
+                String address = instance.getIp() + ':' + instance.getPort();
+                long replicas = Math.max(1, Math.min(Math.round(scale * Math.max(instance.getWeight(), 0)),
+                        (long) VIRTUAL_NODES * MAX_REPLICA_RATIO));
+                for (int j = 0; j < replicas; j++) {
+                    nodes.add(new long[]{hash(address + '#' + j), i});
+                }
+            }
+            nodes.sort((a, b) -> Long.compare(a[0], b[0]));
+            this.points = new long[nodes.size()];
+            this.owners = new Instance[nodes.size()];
+            for (int i = 0; i < points.length; i++) {
+                points[i] = nodes.get(i)[0];
+                owners[i] = instances.get((int) nodes.get(i)[1]);
+            }
+        }
+
+        /**
+         * 顺时针找到第一个不小于键的虚拟节点，超过最大位置时回到环的起点
+         */
+        private Instance select(long hash) {
+            int index = Arrays.binarySearch(points, hash);
+            if (index < 0) {
+                index = -index - 1;
+                if (index == points.length) {
+                    index = 0;
+                }
+            }
+            return owners[index];
+        }
+
+    }
+
+}
@@ -0,0 +1,109 @@
+package panda.rpc.loadbalancer;
+
+import java.net.InetSocketAddress;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 客户端对每个服务端实例的调用统计，由NettyClient在发出请求和请求结束时更新
+ * 记录未完成的请求数，以及响应时间的峰值指数移动平均(peak EWMA)：
+ * 观测值高于当前值时直接取观测值，低于时按距上次观测的时间衰减地靠近，
+ * 读取时同样按时间向0衰减，慢节点少了流量之后也能逐渐重新获得请求
+ */
+public class InstanceStats {
+
+    private static final Map<InetSocketAddress, InstanceStats> stats = new ConcurrentHashMap<>();
+
+    /**
+     * 衰减的时间常数，单位毫秒
+     */
+    private static final double DECAY_NANOS = Long.getLong("srpc.loadbalancer.ewmaDecayMillis", 10000L) * 1e6;
+
+    private final AtomicInteger pending  = new AtomicInteger();
+    /**
+     * 以纳秒为单位的EWMA，按double的位存储以便CAS更新
+     */
+    private final AtomicLong    ewmaBits = new AtomicLong();
+
+    private volatile long stamp = System.nanoTime();
+
+    public static InstanceStats of(InetSocketAddress address) {
+        InstanceStats instanceStats = stats.get(address);
+        if (instanceStats == null) {
+            instanceStats = stats.computeIfAbsent(address, k -> new InstanceStats());
+        }
+        return instanceStats;
+    }
+
+    /**
+     * @return 所有出现过的地址及其统计，只读
+     */
+    public static Map<InetSocketAddress, InstanceStats> all() {
+        return Collections.unmodifiableMap(stats);
+    }
+
+    /**
+     * 发出请求时调用
+     *
+     * @return 开始时间，请求结束时传给finish
+     */
+    public long start() {
+        pending.incrementAndGet();
+        return System.nanoTime();
+    }
+
+    /**
+     * 请求结束时调用，超时和失败同样计入耗时，使出问题的节点尽快降权
+     */
+    public void finish(long startNanos) {
+        pending.decrementAndGet();
+        long now = System.nanoTime();
+        double rtt = Math.max(now - startNanos, 0);
+        while (true) {
+            long bits = ewmaBits.get();
+            double current = Double.longBitsToDouble(bits);
+            double updated;
+            if (rtt > current) {
+                updated = rtt;
+            } else {
+                double weight = Math.exp(-(now - stamp) / DECAY_NANOS);
+                updated = current * weight + rtt * (1 - weight);
+            }
+            if (ewmaBits.compareAndSet(bits, Double.doubleToRawLongBits(updated))) {
+                break;
+            }
+        }
+        stamp = now;
+    }
+
+    public int getPending() {
+        return pending.get();
+    }
+
+    /**
+     * @return 衰减到当前时刻的响应时间EWMA，单位纳秒，没有观测值时为0
+     */
+    public double getLatencyEwma() {
+        double current = Double.longBitsToDouble(ewmaBits.get());
+        if (current == 0) {
+            return 0;
+        }
+        return current * Math.exp(-(System.nanoTime() - stamp) / DECAY_NANOS);
+    }
+
+    /**
+     * 负载代价：EWMA乘以加上本次请求后的未完成请求数
+     * 还没有观测值的实例按1毫秒计算，既能分到请求，又不会在启动瞬间被打满
+     */
+    public double getCost() {
+        double latency = getLatencyEwma();
+        if (latency == 0) {
+            latency = 1e6;
+        }
+        return latency * (pending.get() + 1);
+    }
+
+}
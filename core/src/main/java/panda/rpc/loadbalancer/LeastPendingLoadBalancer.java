@@ -0,0 +1,36 @@
+package panda.rpc.loadbalancer;
+
+import com.alibaba.nacos.api.naming.pojo.Instance;
+import panda.rpc.entity.RpcRequest;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 选择未完成请求最少的实例，从随机位置开始比较，请求数相同时不总是落到同一个实例上
+ */
+public class LeastPendingLoadBalancer implements LoadBalancer {
+
+    @Override
+    public Instance select(List<Instance> instances) {
+        return select(instances, LoadBalancer.statsOf(instances), null);
+    }
+
+    @Override
+    public Instance select(List<Instance> instances, InstanceStats[] stats, RpcRequest request) {
+        int size = instances.size();
+        int start = size == 1 ? 0 : ThreadLocalRandom.current().nextInt(size);
+        int selected = start;
+        int least = stats[start].getPending();
+        for (int i = 1; i < size && least > 0; i++) {
+            int index = (start + i) % size;
+            int pending = stats[index].getPending();
+            if (pending < least) {
+                selected = index;
+                least = pending;
+            }
+        }
+        return instances.get(selected);
+    }
+
+}
@@ -1,11 +1,37 @@
 package panda.rpc.loadbalancer;
 
 import com.alibaba.nacos.api.naming.pojo.Instance;
+import panda.rpc.entity.RpcRequest;
 
+import java.net.InetSocketAddress;
 import java.util.List;
 
 public interface LoadBalancer {
 
     Instance select(List<Instance> instances);
 
+    /**
+     * 带请求上下文和实例统计的选择，服务发现调用的是这个方法
+     * 不需要上下文的负载均衡器不用实现，默认退回到select(instances)
+     *
+     * @param instances 候选实例
+     * @param stats     与instances下标一一对应的调用统计
+     * @param request   本次调用的请求，预热连接等场景下为null
+     */
+    default Instance select(List<Instance> instances, InstanceStats[] stats, RpcRequest request) {
+        return select(instances);
+    }
+
+    /**
+     * 为没有预先算好统计的调用方现查实例统计
+     */
+    static InstanceStats[] statsOf(List<Instance> instances) {
+        InstanceStats[] stats = new InstanceStats[instances.size()];
+        for (int i = 0; i < stats.length; i++) {
+            Instance instance = instances.get(i);
+            stats[i] = InstanceStats.of(new InetSocketAddress(instance.getIp(), instance.getPort()));
+        }
+        return stats;
+    }
+
 }
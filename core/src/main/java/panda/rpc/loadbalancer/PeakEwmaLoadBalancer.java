@@ -0,0 +1,36 @@
+package panda.rpc.loadbalancer;
+
+import com.alibaba.nacos.api.naming.pojo.Instance;
+import panda.rpc.entity.RpcRequest;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 二选一(power of two choices)：随机取两个不同的实例，选响应时间峰值EWMA乘以未完成请求数较小的一个
+ * 慢节点的代价随延迟和积压一起上升，分到的流量随之减少；只比较两个实例，选择开销与实例数无关，
+ * 也避免了所有客户端同时涌向同一个"最优"实例
+ */
+public class PeakEwmaLoadBalancer implements LoadBalancer {
+
+    @Override
+    public Instance select(List<Instance> instances) {
+        return select(instances, LoadBalancer.statsOf(instances), null);
+    }
+
+    @Override
+    public Instance select(List<Instance> instances, InstanceStats[] stats, RpcRequest request) {
+        int size = instances.size();
+        if (size == 1) {
+            return instances.get(0);
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(size);
+        int second = random.nextInt(size - 1);
+        if (second >= first) {
+            second++;
+        }
+        return stats[first].getCost() <= stats[second].getCost() ? instances.get(first) : instances.get(second);
+    }
+
+}
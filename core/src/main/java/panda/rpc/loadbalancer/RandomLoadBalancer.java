@@ -3,13 +3,13 @@ package panda.rpc.loadbalancer;
 import com.alibaba.nacos.api.naming.pojo.Instance;
 
 import java.util.List;
-import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
 
 public class RandomLoadBalancer implements LoadBalancer {
 
     @Override
     public Instance select(List<Instance> instances) {
-        return instances.get(new Random().nextInt(instances.size()));
+        return instances.get(ThreadLocalRandom.current().nextInt(instances.size()));
     }
 
 }
@@ -3,18 +3,16 @@ package panda.rpc.loadbalancer;
 import com.alibaba.nacos.api.naming.pojo.Instance;
 
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 
 public class RoundRobinLoadBalancer implements LoadBalancer {
 
-    private int index = 0;
+    private final AtomicInteger index = new AtomicInteger();
 
     @Override
     public Instance select(List<Instance> instances) {
-        if(index >= instances.size()) {
-            index %= instances.size();
-        }
-        return instances.get(index++);
+        return instances.get((index.getAndIncrement() & Integer.MAX_VALUE) % instances.size());
     }
 
 }
@@ -0,0 +1,78 @@
+package panda.rpc.loadbalancer;
+
+import com.alibaba.nacos.api.naming.pojo.Instance;
+import panda.rpc.entity.RpcRequest;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 平滑加权轮询，按Nacos实例权重分配请求，权重高的实例不会连续分到一串请求
+ * 实例列表变化时按nginx的平滑加权算法预先生成一整轮的选择顺序，
+ * 选择时只对计数器做一次原子自增再取下标，不需要加锁更新各实例的当前权重
+ */
+public class SmoothWeightedRoundRobinLoadBalancer
+        extends SnapshotLoadBalancer<SmoothWeightedRoundRobinLoadBalancer.Schedule> {
+
+    /**
+     * 一轮选择顺序的最大长度，权重之和超过时按比例缩小
+     */
+    private static final int MAX_ROUND = 1 << 14;
+
+    @Override
+    public Instance select(List<Instance> instances) {
+        return select(instances, null, null);
+    }
+
+    @Override
+    protected Schedule build(List<Instance> instances) {
+        return new Schedule(instances, weights(instances));
+    }
+
+    @Override
+    protected Instance select(Schedule schedule, RpcRequest request) {
+        return schedule.next();
+    }
+
+    static final class Schedule {
+
+        private final Instance[]    order;
+        private final AtomicInteger cursor = new AtomicInteger();
+
+        private Schedule(List<Instance> instances, int[] weights) {
+            long total = 0;
+            for (int weight : weights) {
+                total += weight;
+            }
+            if (total > MAX_ROUND) {
+                long scaled = 0;
+                for (int i = 0; i < weights.length; i++) {
+                    if (weights[i] > 0) {
+                        weights[i] = (int) Math.max(1, (long) weights[i] * MAX_ROUND / total);
+                    }
+                    scaled += weights[i];
+                }
+                total = scaled;
+            }
+            this.order = new Instance[(int) total];
+            long[] current = new long[weights.length];
+            for (int n = 0; n < order.length; n++) {
+                int selected = -1;
+                for (int i = 0; i < weights.length; i++) {
+                    current[i] += weights[i];
+                    if (weights[i] > 0 && (selected < 0 || current[i] > current[selected])) {
+                        selected = i;
+                    }
+                }
+                current[selected] -= total;
+                order[n] = instances.get(selected);
+            }
+        }
+
+        private Instance next() {
+            return order[(cursor.getAndIncrement() & Integer.MAX_VALUE) % order.length];
+        }
+
+    }
+
+}
@@ -0,0 +1,110 @@
+package panda.rpc.loadbalancer;
+
+import com.alibaba.nacos.api.naming.pojo.Instance;
+import panda.rpc.entity.RpcRequest;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 需要按实例列表预先计算选择表的负载均衡器
+ * 选择表按服务缓存，只在实例列表变化时重建；服务发现每个版本的实例列表是同一个不可变对象，
+ * 引用不变就说明实例没有变化，选择时不加锁，也不用比较列表内容
+ *
+ * @param <T> 选择表的类型，构建后不再修改
+ */
+abstract class SnapshotLoadBalancer<T> implements LoadBalancer {
+
+    private final Map<String, Cached<T>> tables = new ConcurrentHashMap<>();
+
+    @Override
+    public Instance select(List<Instance> instances) {
+        return select(instances, null, null);
+    }
+
+    @Override
+    public Instance select(List<Instance> instances, InstanceStats[] stats, RpcRequest request) {
+        if (instances.size() == 1) {
+            return instances.get(0);
+        }
+        String serviceName = request == null ? "" : request.getInterfaceName();
+        Cached<T> cached = tables.get(serviceName);
+        if (cached == null || cached.instances != instances) {
+            //并发重建时各自构建，结果相同，后写入的覆盖先写入的
+            cached = new Cached<>(instances, build(instances));
+            tables.put(serviceName, cached);
+        }
+        return select(cached.table, request);
+    }
+
+    protected abstract T build(List<Instance> instances);
+
+    protected abstract Instance select(T table, RpcRequest request);
+
+    /**
+     * 可以接收请求的实例：已启用、健康并且权重大于0
+     * 都不可用时退回到全部实例，由调用失败暴露问题，而不是在客户端直接找不到服务
+     */
+    static List<Instance> available(List<Instance> instances) {
+        List<Instance> available = new ArrayList<>(instances.size());
+        for (Instance instance : instances) {
+            if (instance.isEnabled() && instance.isHealthy() && instance.getWeight() > 0) {
+                available.add(instance);
+            }
+        }
+        return available.isEmpty() ? instances : available;
+    }
+
+    /**
+     * 把实例权重换算成整数，保留两位小数后约去最大公约数
+     * 实例都不可用而退回到全部实例时，权重都按1计算
+     */
+    static int[] weights(List<Instance> instances) {
+        int[] weights = new int[instances.size()];
+        long total = 0;
+        for (int i = 0; i < weights.length; i++) {
+            Instance instance = instances.get(i);
+            if (instance.isEnabled() && instance.isHealthy()) {
+                weights[i] = (int) Math.min(Math.round(Math.max(instance.getWeight(), 0) * 100), Integer.MAX_VALUE);
+                total += weights[i];
+            }
+        }
+        if (total == 0) {
+            Arrays.fill(weights, 1);
+            return weights;
+        }
+        int gcd = 0;
+        for (int weight : weights) {
+            gcd = gcd(gcd, weight);
+        }
+        for (int i = 0; i < weights.length; i++) {
+            weights[i] /= gcd;
+        }
+        return weights;
+    }
+
+    private static int gcd(int a, int b) {
+        while (b != 0) {
+            int t = a % b;
+            a = b;
+            b = t;
+        }
+        return a;
+    }
+
+    private static final class Cached<T> {
+
+        private final List<Instance> instances;
+        private final T              table;
+
+        private Cached(List<Instance> instances, T table) {
+            this.instances = instances;
+            this.table = table;
+        }
+
+    }
+
+}
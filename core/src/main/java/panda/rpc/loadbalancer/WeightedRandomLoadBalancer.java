@@ -0,0 +1,90 @@
+package panda.rpc.loadbalancer;
+
+import com.alibaba.nacos.api.naming.pojo.Instance;
+import panda.rpc.entity.RpcRequest;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 按Nacos实例权重随机选择
+ * 实例列表变化时用Vose的别名法构建概率表，选择时只取两个随机数，开销与实例数无关
+ */
+public class WeightedRandomLoadBalancer extends SnapshotLoadBalancer<WeightedRandomLoadBalancer.AliasTable> {
+
+    @Override
+    public Instance select(List<Instance> instances) {
+        return select(instances, null, null);
+    }
+
+    @Override
+    protected AliasTable build(List<Instance> instances) {
+        return new AliasTable(instances, weights(instances));
+    }
+
+    @Override
+    protected Instance select(AliasTable table, RpcRequest request) {
+        return table.next();
+    }
+
+    static final class AliasTable {
+
+        private final Instance[] instances;
+        /**
+         * 落在第i列时选中第i个实例的概率，否则选中alias[i]
+         */
+        private final double[]   probability;
+        private final int[]      alias;
+
+        private AliasTable(List<Instance> instances, int[] weights) {
+            int size = weights.length;
+            this.instances = instances.toArray(new Instance[0]);
+            this.probability = new double[size];
+            this.alias = new int[size];
+            long total = 0;
+            for (int weight : weights) {
+                total += weight;
+            }
+            double[] scaled = new double[size];
+            int[] small = new int[size];
+            int[] large = new int[size];
+            int smallCount = 0;
+            int largeCount = 0;
+            for (int i = 0; i < size; i++) {
+                scaled[i] = (double) weights[i] * size / total;
+                if (scaled[i] < 1) {
+                    small[smallCount++] = i;
+                } else {
+                    large[largeCount++] = i;
+                }
+            }
+            while (smallCount > 0 && largeCount > 0) {
+                int less = small[--smallCount];
+                int more = large[--largeCount];
+                probability[less] = scaled[less];
+                alias[less] = more;
+                scaled[more] = scaled[more] + scaled[less] - 1;
+                if (scaled[more] < 1) {
+                    small[smallCount++] = more;
+                } else {
+                    large[largeCount++] = more;
+                }
+            }
+            //剩下的列概率理论上都是1，浮点误差不影响结果
+            while (largeCount > 0) {
+                probability[large[--largeCount]] = 1;
+            }
+            while (smallCount > 0) {
+                probability[small[--smallCount]] = 1;
+            }
+        }
+
+        private Instance next() {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            int column = random.nextInt(instances.length);
+            return random.nextDouble() < probability[column] ? instances[column] : instances[alias[column]];
+        }
+
+    }
+
+}
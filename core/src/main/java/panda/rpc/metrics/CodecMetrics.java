@@ -0,0 +1,50 @@
+package panda.rpc.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 一种序列化器的编解码统计，Netty和Socket两种传输方式共用
+ */
+public class CodecMetrics {
+
+    private final String serializer;
+
+    private final LongAdder framesOut = new LongAdder();
+    private final LongAdder framesIn  = new LongAdder();
+    private final LongAdder bytesOut  = new LongAdder();
+    private final LongAdder bytesIn   = new LongAdder();
+
+    private final LatencyHistogram serializeTime   = new LatencyHistogram();
+    private final LatencyHistogram deserializeTime = new LatencyHistogram();
+
+    CodecMetrics(String serializer) {
+        this.serializer = serializer;
+    }
+
+    /**
+     * @param bytes 整帧的字节数，包括帧头
+     */
+    public void recordFrameOut(int bytes) {
+        framesOut.increment();
+        bytesOut.add(bytes);
+    }
+
+    public void recordFrameIn(int bytes) {
+        framesIn.increment();
+        bytesIn.add(bytes);
+    }
+
+    public void recordSerialize(long nanos) {
+        serializeTime.record(nanos);
+    }
+
+    public void recordDeserialize(long nanos) {
+        deserializeTime.record(nanos);
+    }
+
+    CodecSnapshot snapshot() {
+        return new CodecSnapshot(serializer, framesOut.sum(), framesIn.sum(), bytesOut.sum(), bytesIn.sum(),
+                serializeTime.snapshot(), deserializeTime.snapshot());
+    }
+
+}
@@ -0,0 +1,20 @@
+package panda.rpc.metrics;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+@Getter
+@ToString
+@AllArgsConstructor
+public class CodecSnapshot {
+
+    private final String            serializer;
+    private final long              framesOut;
+    private final long              framesIn;
+    private final long              bytesOut;
+    private final long              bytesIn;
+    private final HistogramSnapshot serializeTime;
+    private final HistogramSnapshot deserializeTime;
+
+}
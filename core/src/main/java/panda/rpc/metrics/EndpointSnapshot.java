@@ -0,0 +1,28 @@
+package panda.rpc.metrics;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * 客户端到一个服务端地址的调用状态，来自负载均衡使用的InstanceStats
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class EndpointSnapshot {
+
+    /**
+     * host:port
+     */
+    private final String address;
+    /**
+     * 已发出但还没有结束的请求数
+     */
+    private final int    inFlight;
+    /**
+     * 响应时间的峰值EWMA，单位纳秒
+     */
+    private final long   latencyEwma;
+
+}
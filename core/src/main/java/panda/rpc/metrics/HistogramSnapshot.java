@@ -0,0 +1,25 @@
+package panda.rpc.metrics;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * 直方图在某一时刻的统计结果，数值单位均为纳秒
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class HistogramSnapshot {
+
+    static final HistogramSnapshot EMPTY = new HistogramSnapshot(0, 0, 0, 0, 0, 0, 0);
+
+    private final long count;
+    private final long mean;
+    private final long p50;
+    private final long p90;
+    private final long p99;
+    private final long p999;
+    private final long max;
+
+}
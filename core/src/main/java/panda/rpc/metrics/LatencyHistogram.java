@@ -0,0 +1,120 @@
+package panda.rpc.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 无锁的耗时直方图，单位纳秒
+ * 桶按2的幂分段，每段再等分成8个子桶，相对误差不超过12.5%，最大记录约18分钟，超出的记在最后一个桶；
+ * 按线程号把写入分散到多组桶上，每组桶在第一次使用时才分配，记录时只有一次原子自增，读取时把各组相加
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BITS    = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int MAX_BITS    = 40;
+    private static final long MAX_VALUE  = (1L << MAX_BITS) - 1;
+    private static final int BUCKETS     = (MAX_BITS - SUB_BITS + 1) * SUB_BUCKETS;
+
+    private static final int STRIPES = stripes();
+
+    private final AtomicReferenceArray<AtomicLongArray> stripes = new AtomicReferenceArray<>(STRIPES);
+
+    private final LongAdder  sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(long nanos) {
+        long value = Math.min(Math.max(nanos, 0), MAX_VALUE);
+        stripe().getAndIncrement(index(value));
+        sum.add(value);
+        long current = max.get();
+        while (value > current && !max.compareAndSet(current, value)) {
+            current = max.get();
+        }
+    }
+
+    /**
+     * 读取时其他线程可能正在写入，各项数值之间不保证严格一致
+     */
+    public HistogramSnapshot snapshot() {
+        long[] counts = new long[BUCKETS];
+        long count = 0;
+        for (int i = 0; i < STRIPES; i++) {
+            AtomicLongArray stripe = stripes.get(i);
+            if (stripe == null) {
+                continue;
+            }
+            for (int j = 0; j < BUCKETS; j++) {
+                long bucket = stripe.get(j);
+                counts[j] += bucket;
+                count += bucket;
+            }
+        }
+        if (count == 0) {
+            return HistogramSnapshot.EMPTY;
+        }
+        long maxValue = max.get();
+        return new HistogramSnapshot(count, sum.sum() / count, valueAt(counts, count, 0.5, maxValue),
+                valueAt(counts, count, 0.9, maxValue), valueAt(counts, count, 0.99, maxValue),
+                valueAt(counts, count, 0.999, maxValue), maxValue);
+    }
+
+    private AtomicLongArray stripe() {
+        int index = (int) (Thread.currentThread().getId() * 0x9E3779B9L >>> 16) & (STRIPES - 1);
+        AtomicLongArray stripe = stripes.get(index);
+        if (stripe == null) {
+            stripes.compareAndSet(index, null, new AtomicLongArray(BUCKETS));
+            stripe = stripes.get(index);
+        }
+        return stripe;
+    }
+
+    /**
+     * 桶的上界可能超过实际记录到的最大值，按最大值截断
+     */
+    private static long valueAt(long[] counts, long count, double percentile, long maxValue) {
+        long rank = (long) Math.ceil(count * percentile);
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(highestValue(i), maxValue);
+            }
+        }
+        return maxValue;
+    }
+
+    static int index(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    /**
+     * @return 桶中能记录的最大值，分位数按桶的上界报告，宁可偏大也不偏小
+     */
+    static long highestValue(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int exponent = index / SUB_BUCKETS + SUB_BITS - 1;
+        long sub = index % SUB_BUCKETS;
+        long width = 1L << (exponent - SUB_BITS);
+        return ((SUB_BUCKETS + sub) << (exponent - SUB_BITS)) + width - 1;
+    }
+
+    private static int stripes() {
+        int processors = Math.min(Runtime.getRuntime().availableProcessors(), 64);
+        int stripes = 1;
+        while (stripes < processors) {
+            stripes <<= 1;
+        }
+        return stripes;
+    }
+
+}
@@ -0,0 +1,79 @@
+package panda.rpc.metrics;
+
+import panda.rpc.enumeration.RpcError;
+import panda.rpc.exception.RpcException;
+
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 一个方法的调用统计，客户端和服务端各有一份
+ * 客户端记录从发出请求到收到响应的耗时；服务端记录请求解码后等待执行的时间和方法本身的执行时间
+ */
+public class MethodMetrics {
+
+    private final String name;
+
+    private final LongAdder calls    = new LongAdder();
+    private final LongAdder errors   = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+
+    private final LatencyHistogram latency   = new LatencyHistogram();
+    private final LatencyHistogram queueWait = new LatencyHistogram();
+
+    MethodMetrics(String name) {
+        this.name = name;
+    }
+
+    /**
+     * 记录一次调用，超时的调用同时计入耗时，其他失败只计数
+     *
+     * @param error 调用成功时为null
+     */
+    public void record(long nanos, Throwable error) {
+        calls.increment();
+        if (error == null) {
+            latency.record(nanos);
+            return;
+        }
+        if (isTimeout(error)) {
+            timeouts.increment();
+            latency.record(nanos);
+        } else {
+            errors.increment();
+        }
+    }
+
+    /**
+     * 服务端记录一次方法执行
+     */
+    public void record(long nanos, boolean failed) {
+        calls.increment();
+        latency.record(nanos);
+        if (failed) {
+            errors.increment();
+        }
+    }
+
+    /**
+     * 服务端记录请求从解码完成到开始执行的等待时间
+     */
+    public void recordQueueWait(long nanos) {
+        queueWait.record(nanos);
+    }
+
+    MethodSnapshot snapshot() {
+        return new MethodSnapshot(name, calls.sum(), errors.sum(), timeouts.sum(), latency.snapshot(),
+                queueWait.snapshot());
+    }
+
+    private static boolean isTimeout(Throwable error) {
+        while ((error instanceof CompletionException || error instanceof ExecutionException)
+                && error.getCause() != null) {
+            error = error.getCause();
+        }
+        return error instanceof RpcException && ((RpcException) error).getError() == RpcError.REQUEST_TIMEOUT;
+    }
+
+}
@@ -0,0 +1,28 @@
+package panda.rpc.metrics;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+@Getter
+@ToString
+@AllArgsConstructor
+public class MethodSnapshot {
+
+    /**
+     * 方法签名，形如 panda.rpc.HelloService#hello(panda.rpc.HelloObject)
+     */
+    private final String            name;
+    private final long              calls;
+    private final long              errors;
+    private final long              timeouts;
+    /**
+     * 客户端为调用耗时，服务端为方法执行耗时
+     */
+    private final HistogramSnapshot latency;
+    /**
+     * 只有服务端记录
+     */
+    private final HistogramSnapshot queueWait;
+
+}
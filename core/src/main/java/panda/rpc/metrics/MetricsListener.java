@@ -0,0 +1,13 @@
+package panda.rpc.metrics;
+
+/**
+ * 定期接收统计快照的监听器，用于把统计推送到外部监控系统
+ * 可以通过RpcMetrics.addListener注册，也可以在
+ * META-INF/services/panda.rpc.metrics.MetricsListener 中声明，由SPI加载
+ * 回调在单独的定时线程上执行，间隔由 srpc.metrics.reportMillis 指定
+ */
+public interface MetricsListener {
+
+    void onReport(MetricsSnapshot snapshot);
+
+}
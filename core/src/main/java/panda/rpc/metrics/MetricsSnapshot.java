@@ -0,0 +1,24 @@
+package panda.rpc.metrics;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.List;
+
+/**
+ * 所有统计在某一时刻的快照，JMX和MetricsListener读到的都是它
+ * 计数从进程启动开始累计，需要区间值时由使用方对前后两次快照求差
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class MetricsSnapshot {
+
+    private final long                   timestamp;
+    private final List<MethodSnapshot>   clientMethods;
+    private final List<MethodSnapshot>   serverMethods;
+    private final List<CodecSnapshot>    codecs;
+    private final List<EndpointSnapshot> endpoints;
+
+}
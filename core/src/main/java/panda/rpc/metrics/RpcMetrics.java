@@ -0,0 +1,192 @@
+package panda.rpc.metrics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import panda.rpc.factory.ThreadPoolFactory;
+import panda.rpc.loadbalancer.InstanceStats;
+import panda.rpc.serializer.CommonSerializer;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 调用统计的入口，客户端按方法记录调用耗时、失败和超时，服务端按方法记录排队和执行耗时，
+ * 编解码按序列化器记录字节数和序列化耗时；每个地址上未完成的请求数直接取自InstanceStats
+ * 统计对象在第一次使用时创建并缓存在调用方，记录时不查表也不加锁；
+ * 设置 -Dsrpc.metrics.enabled=false 可以关闭统计，此时各个get方法返回null
+ */
+public class RpcMetrics {
+
+    private static final Logger logger = LoggerFactory.getLogger(RpcMetrics.class);
+
+    public static final boolean ENABLED = Boolean.parseBoolean(System.getProperty("srpc.metrics.enabled", "true"));
+
+    /**
+     * 向MetricsListener推送快照的间隔，单位毫秒
+     */
+    private static final long REPORT_MILLIS = Long.getLong("srpc.metrics.reportMillis", 60000L);
+
+    private static final String OBJECT_NAME = "panda.rpc:type=RpcMetrics";
+
+    /**
+     * v2帧头中序列化器编号只占一个字节
+     */
+    private static final int MAX_SERIALIZER_CODE = 0xFF;
+
+    private static final Map<String, MethodMetrics> clientMethods = new ConcurrentHashMap<>();
+    private static final Map<String, MethodMetrics> serverMethods = new ConcurrentHashMap<>();
+
+    private static final AtomicReferenceArray<CodecMetrics> codecs =
+            new AtomicReferenceArray<>(MAX_SERIALIZER_CODE + 1);
+
+    private static final List<MetricsListener> listeners = new CopyOnWriteArrayList<>();
+    private static final AtomicBoolean         reporting = new AtomicBoolean();
+
+    static {
+        if (ENABLED) {
+            registerMBean();
+            for (MetricsListener listener : ServiceLoader.load(MetricsListener.class)) {
+                addListener(listener);
+            }
+        }
+    }
+
+    private RpcMetrics() {
+    }
+
+    /**
+     * @param signature 方法签名，参见 {@link panda.rpc.provider.MethodInvoker#signature}
+     */
+    public static MethodMetrics getClientMethod(String signature) {
+        return ENABLED ? clientMethods.computeIfAbsent(signature, MethodMetrics::new) : null;
+    }
+
+    public static MethodMetrics getServerMethod(String signature) {
+        return ENABLED ? serverMethods.computeIfAbsent(signature, MethodMetrics::new) : null;
+    }
+
+    public static CodecMetrics getCodec(int serializerCode) {
+        if (!ENABLED || serializerCode < 0 || serializerCode > MAX_SERIALIZER_CODE) {
+            return null;
+        }
+        CodecMetrics metrics = codecs.get(serializerCode);
+        if (metrics == null) {
+            CommonSerializer serializer = CommonSerializer.getByCode(serializerCode);
+            codecs.compareAndSet(serializerCode, null, new CodecMetrics(serializer == null
+                    ? String.valueOf(serializerCode)
+                    : serializer.getClass().getSimpleName()));
+            metrics = codecs.get(serializerCode);
+        }
+        return metrics;
+    }
+
+    /**
+     * 注册监听器，第一个监听器注册时开始定时推送
+     */
+    public static void addListener(MetricsListener listener) {
+        listeners.add(listener);
+        if (REPORT_MILLIS > 0 && reporting.compareAndSet(false, true)) {
+            ThreadPoolFactory.createScheduledThreadPool("rpc-metrics-report")
+                    .scheduleAtFixedRate(RpcMetrics::report, REPORT_MILLIS, REPORT_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public static void removeListener(MetricsListener listener) {
+        listeners.remove(listener);
+    }
+
+    public static MetricsSnapshot snapshot() {
+        return new MetricsSnapshot(System.currentTimeMillis(), snapshot(clientMethods), snapshot(serverMethods),
+                codecSnapshots(), endpointSnapshots());
+    }
+
+    private static List<MethodSnapshot> snapshot(Map<String, MethodMetrics> methods) {
+        List<MethodSnapshot> snapshots = new ArrayList<>(methods.size());
+        for (MethodMetrics metrics : methods.values()) {
+            snapshots.add(metrics.snapshot());
+        }
+        snapshots.sort(Comparator.comparing(MethodSnapshot::getName));
+        return snapshots;
+    }
+
+    private static List<CodecSnapshot> codecSnapshots() {
+        List<CodecSnapshot> snapshots = new ArrayList<>();
+        for (int i = 0; i < codecs.length(); i++) {
+            CodecMetrics metrics = codecs.get(i);
+            if (metrics != null) {
+                snapshots.add(metrics.snapshot());
+            }
+        }
+        return snapshots;
+    }
+
+    private static List<EndpointSnapshot> endpointSnapshots() {
+        List<EndpointSnapshot> snapshots = new ArrayList<>();
+        for (Map.Entry<InetSocketAddress, InstanceStats> entry : InstanceStats.all().entrySet()) {
+            InetSocketAddress address = entry.getKey();
+            snapshots.add(new EndpointSnapshot(address.getHostString() + ':' + address.getPort(),
+                    entry.getValue().getPending(), (long) entry.getValue().getLatencyEwma()));
+        }
+        snapshots.sort(Comparator.comparing(EndpointSnapshot::getAddress));
+        return snapshots;
+    }
+
+    private static void report() {
+        if (listeners.isEmpty()) {
+            return;
+        }
+        MetricsSnapshot snapshot = snapshot();
+        for (MetricsListener listener : listeners) {
+            try {
+                listener.onReport(snapshot);
+            } catch (Exception e) {
+                logger.warn("统计监听器 {} 处理失败: {}", listener.getClass().getName(), e.getMessage());
+            }
+        }
+    }
+
+    private static void registerMBean() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(new Jmx(), new ObjectName(OBJECT_NAME));
+        } catch (JMException e) {
+            logger.warn("注册统计MBean失败: {}", e.getMessage());
+        }
+    }
+
+    private static final class Jmx implements RpcMetricsMXBean {
+
+        @Override
+        public List<MethodSnapshot> getClientMethods() {
+            return snapshot(clientMethods);
+        }
+
+        @Override
+        public List<MethodSnapshot> getServerMethods() {
+            return snapshot(serverMethods);
+        }
+
+        @Override
+        public List<CodecSnapshot> getCodecs() {
+            return codecSnapshots();
+        }
+
+        @Override
+        public List<EndpointSnapshot> getEndpoints() {
+            return endpointSnapshots();
+        }
+
+    }
+
+}
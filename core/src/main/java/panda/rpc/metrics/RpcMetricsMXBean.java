@@ -0,0 +1,18 @@
+package panda.rpc.metrics;
+
+import java.util.List;
+
+/**
+ * 通过JMX暴露的统计，注册名为 panda.rpc:type=RpcMetrics
+ */
+public interface RpcMetricsMXBean {
+
+    List<MethodSnapshot> getClientMethods();
+
+    List<MethodSnapshot> getServerMethods();
+
+    List<CodecSnapshot> getCodecs();
+
+    List<EndpointSnapshot> getEndpoints();
+
+}
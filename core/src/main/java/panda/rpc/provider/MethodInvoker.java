@@ -0,0 +1,100 @@
+package panda.rpc.provider;
+
+import panda.rpc.metrics.MethodMetrics;
+import panda.rpc.metrics.RpcMetrics;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+
+/**
+ * 绑定到服务实例上的方法调用器，发布服务时为每个方法创建一次
+ * 内部是展开参数数组的MethodHandle，调用时不再做反射查找和访问检查
+ */
+public class MethodInvoker {
+
+    private static final Object[] NO_ARGS = new Object[0];
+
+    private static final MethodType INVOKER_TYPE = MethodType.methodType(Object.class, Object[].class);
+
+    /**
+     * 进程内唯一的方法编号，可以代替方法签名传输
+     */
+    private final int          id;
+    private final String       serviceName;
+    private final String       methodName;
+    private final String       signature;
+    private final Class<?>[]   paramTypes;
+    private final MethodHandle handle;
+    /**
+     * 服务端的调用统计，关闭统计时为null
+     */
+    private final MethodMetrics metrics;
+
+    MethodInvoker(int id, String serviceName, Object service, Method method) throws IllegalAccessException {
+        this.id = id;
+        this.serviceName = serviceName;
+        this.methodName = method.getName();
+        this.signature = signature(serviceName, method.getName(), method.getParameterTypes());
+        this.paramTypes = method.getParameterTypes();
+        //实现类不是public时，public方法也需要放开访问检查才能取得句柄
+        method.setAccessible(true);
+        this.handle = MethodHandles.lookup().unreflect(method)
+                .bindTo(service)
+                .asSpreader(Object[].class, paramTypes.length)
+                .asType(INVOKER_TYPE);
+        this.metrics = RpcMetrics.getServerMethod(signature);
+    }
+
+    /**
+     * @return 形如 panda.rpc.HelloService#hello(panda.rpc.HelloObject) 的方法签名
+     */
+    public static String signature(String serviceName, String methodName, Class<?>[] paramTypes) {
+        StringBuilder builder = new StringBuilder(serviceName).append('#').append(methodName).append('(');
+        for (int i = 0; i < paramTypes.length; i++) {
+            if (i > 0) {
+                builder.append(',');
+            }
+            builder.append(paramTypes[i].getName());
+        }
+        return builder.append(')').toString();
+    }
+
+    /**
+     * 调用服务方法，服务方法抛出的异常原样抛出
+     */
+    public Object invoke(Object[] args) throws Throwable {
+        return (Object) handle.invokeExact(args == null ? NO_ARGS : args);
+    }
+
+    boolean matches(Class<?>[] paramTypes) {
+        return Arrays.equals(this.paramTypes, paramTypes);
+    }
+
+    public MethodMetrics getMetrics() {
+        return metrics;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getServiceName() {
+        return serviceName;
+    }
+
+    public String getMethodName() {
+        return methodName;
+    }
+
+    public Class<?>[] getParamTypes() {
+        return paramTypes;
+    }
+
+    public String getSignature() {
+        return signature;
+    }
+
+}
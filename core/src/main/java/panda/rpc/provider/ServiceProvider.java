@@ -1,5 +1,9 @@
 package panda.rpc.provider;
 
+import panda.rpc.enumeration.DispatchStrategy;
+
+import java.util.Map;
+
 /**
  * 保存和提供服务实例对象
  */
@@ -10,4 +14,26 @@ public interface ServiceProvider {
 
     Object getServiceProvider(String serviceName);
 
+    /**
+     * @return 服务声明的执行策略，服务不存在时返回null
+     */
+    DispatchStrategy getDispatchStrategy(String serviceName);
+
+    /**
+     * 按方法名和参数类型查找发布服务时建好的调用器
+     *
+     * @return 服务中没有该方法时返回null
+     */
+    MethodInvoker getMethodInvoker(String serviceName, String methodName, Class<?>[] paramTypes);
+
+    /**
+     * @return 编号对应的调用器，不存在时返回null
+     */
+    MethodInvoker getMethodInvoker(int methodId);
+
+    /**
+     * @return 方法签名到方法编号的映射
+     */
+    Map<String, Integer> getMethodIds();
+
 }
@@ -2,38 +2,151 @@ package panda.rpc.provider;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import panda.rpc.annotation.Service;
+import panda.rpc.enumeration.DispatchStrategy;
 import panda.rpc.enumeration.RpcError;
 import panda.rpc.exception.RpcException;
 
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
  * 默认的服务注册表，保存服务端本地服务
+ * 注册服务时就为它的每个public方法建好调用器，按 服务名 -> 方法名 -> 参数类型 查找，查找过程不分配对象
  */
 public class ServiceProviderImpl implements ServiceProvider {
 
     private static final Logger logger = LoggerFactory.getLogger(ServiceProviderImpl.class);
 
-    private static final Map<String, Object> serviceMap        = new ConcurrentHashMap<>();
-    private static final Set<String>         registeredService = ConcurrentHashMap.newKeySet();
+    /**
+     * 方法编号的上限，超出后新注册的方法只能按签名查找
+     */
+    private static final int MAX_METHOD_ID = 1 << 16;
+
+    private static final Map<String, ServiceEntry>          serviceMap        = new ConcurrentHashMap<>();
+    private static final Set<String>                        registeredService = ConcurrentHashMap.newKeySet();
+    private static final AtomicReferenceArray<MethodInvoker> invokersById     = new AtomicReferenceArray<>(
+            MAX_METHOD_ID);
+
+    /**
+     * 方法编号从1开始，0留给未指定编号的请求
+     */
+    private static int nextMethodId = 1;
 
     @Override
     public <T> void addServiceProvider(T service, String serviceName) {
-        if (registeredService.contains(serviceName))
+        if (!registeredService.add(serviceName))
             return;
-        registeredService.add(serviceName);
-        serviceMap.put(serviceName, service);
+        Service annotation = service.getClass().getAnnotation(Service.class);
+        DispatchStrategy strategy = annotation == null ? DispatchStrategy.POOL : annotation.dispatch();
+        serviceMap.put(serviceName, new ServiceEntry(service, strategy, createInvokers(service, serviceName)));
         logger.info("向接口: {} 注册服务: {}", service.getClass().getInterfaces(), serviceName);
     }
 
     @Override
     public Object getServiceProvider(String serviceName) {
-        Object service = serviceMap.get(serviceName);
-        if (service == null) {
+        ServiceEntry entry = serviceMap.get(serviceName);
+        if (entry == null) {
             throw new RpcException(RpcError.SERVICE_NOT_FOUND);
         }
-        return service;
+        return entry.service;
+    }
+
+    @Override
+    public DispatchStrategy getDispatchStrategy(String serviceName) {
+        ServiceEntry entry = serviceMap.get(serviceName);
+        return entry == null ? null : entry.dispatchStrategy;
     }
+
+    @Override
+    public MethodInvoker getMethodInvoker(String serviceName, String methodName, Class<?>[] paramTypes) {
+        ServiceEntry entry = serviceMap.get(serviceName);
+        if (entry == null) {
+            throw new RpcException(RpcError.SERVICE_NOT_FOUND);
+        }
+        MethodInvoker[] overloads = entry.methods.get(methodName);
+        if (overloads == null) {
+            return null;
+        }
+        for (MethodInvoker invoker : overloads) {
+            if (invoker.matches(paramTypes)) {
+                return invoker;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public MethodInvoker getMethodInvoker(int methodId) {
+        if (methodId < 0 || methodId >= MAX_METHOD_ID) {
+            return null;
+        }
+        return invokersById.get(methodId);
+    }
+
+    @Override
+    public Map<String, Integer> getMethodIds() {
+        int count;
+        synchronized (ServiceProviderImpl.class) {
+            count = Math.min(nextMethodId, MAX_METHOD_ID);
+        }
+        Map<String, Integer> methodIds = new HashMap<>(count * 2);
+        for (int i = 0; i < count; i++) {
+            MethodInvoker invoker = invokersById.get(i);
+            if (invoker != null) {
+                methodIds.put(invoker.getSignature(), invoker.getId());
+            }
+        }
+        return methodIds;
+    }
+
+    private static Map<String, MethodInvoker[]> createInvokers(Object service, String serviceName) {
+        Map<String, List<MethodInvoker>> methods = new HashMap<>();
+        for (Method method : service.getClass().getMethods()) {
+            if (method.getDeclaringClass() == Object.class || Modifier.isStatic(method.getModifiers())) {
+                continue;
+            }
+            try {
+                MethodInvoker invoker = new MethodInvoker(allocateMethodId(), serviceName, service, method);
+                if (invoker.getId() < MAX_METHOD_ID) {
+                    invokersById.set(invoker.getId(), invoker);
+                }
+                methods.computeIfAbsent(method.getName(), k -> new ArrayList<>()).add(invoker);
+            } catch (IllegalAccessException | RuntimeException e) {
+                logger.error("无法为方法 {} 创建调用器", method, e);
+            }
+        }
+        Map<String, MethodInvoker[]> result = new HashMap<>(methods.size() * 2);
+        methods.forEach((name, overloads) -> result.put(name, overloads.toArray(new MethodInvoker[0])));
+        return result;
+    }
+
+    private static synchronized int allocateMethodId() {
+        return nextMethodId++;
+    }
+
+    private static final class ServiceEntry {
+
+        private final Object                       service;
+        private final DispatchStrategy             dispatchStrategy;
+        /**
+         * 方法名到各个重载的调用器，建好后只读
+         */
+        private final Map<String, MethodInvoker[]> methods;
+
+        ServiceEntry(Object service, DispatchStrategy dispatchStrategy, Map<String, MethodInvoker[]> methods) {
+            this.service = service;
+            this.dispatchStrategy = dispatchStrategy;
+            this.methods = methods;
+        }
+
+    }
+
 }
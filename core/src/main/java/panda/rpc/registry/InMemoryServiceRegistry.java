@@ -0,0 +1,135 @@
+package panda.rpc.registry;
+
+import com.alibaba.nacos.api.naming.pojo.Instance;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import panda.rpc.entity.RpcRequest;
+import panda.rpc.enumeration.RpcError;
+import panda.rpc.exception.RpcException;
+import panda.rpc.loadbalancer.LoadBalancer;
+import panda.rpc.loadbalancer.RandomLoadBalancer;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 进程内注册表，注册和查找都不经过网络
+ * 所有实例共用同一张表，服务端和客户端在同一个进程中时可以直接互相发现，适合基准测试和本地调试
+ */
+public class InMemoryServiceRegistry implements ServiceRegistry, ServiceDiscovery {
+
+    private static final Logger logger = LoggerFactory.getLogger(InMemoryServiceRegistry.class);
+
+    private static final Map<String, ServiceSnapshot> snapshots = new ConcurrentHashMap<>();
+
+    private final LoadBalancer loadBalancer;
+
+    /**
+     * 本实例注册过的服务及地址，同一服务可以注册多个地址，注销时只移除自己注册的地址
+     */
+    private final Map<String, Set<InetSocketAddress>> registered = new ConcurrentHashMap<>();
+
+    public InMemoryServiceRegistry() {
+        this(null);
+    }
+
+    public InMemoryServiceRegistry(LoadBalancer loadBalancer) {
+        this.loadBalancer = loadBalancer == null ? new RandomLoadBalancer() : loadBalancer;
+    }
+
+    @Override
+    public void register(String serviceName, InetSocketAddress inetSocketAddress) {
+        Instance instance = new Instance();
+        instance.setIp(inetSocketAddress.getHostString());
+        instance.setPort(inetSocketAddress.getPort());
+        snapshots.compute(serviceName, (k, current) -> {
+            List<Instance> instances = new ArrayList<>();
+            if (current != null) {
+                for (Instance existing : current.getInstances()) {
+                    if (!sameAddress(existing, instance)) {
+                        instances.add(existing);
+                    }
+                }
+            }
+            instances.add(instance);
+            return new ServiceSnapshot(current == null ? 1 : current.getVersion() + 1, instances);
+        });
+        registered.computeIfAbsent(serviceName, k -> ConcurrentHashMap.newKeySet()).add(inetSocketAddress);
+    }
+
+    @Override
+    public void clearRegistry() {
+        for (Map.Entry<String, Set<InetSocketAddress>> entry : registered.entrySet()) {
+            for (InetSocketAddress address : entry.getValue()) {
+                deregister(entry.getKey(), address);
+            }
+        }
+        registered.clear();
+    }
+
+    public void deregister(String serviceName, InetSocketAddress inetSocketAddress) {
+        Set<InetSocketAddress> addresses = registered.get(serviceName);
+        if (addresses != null) {
+            addresses.remove(inetSocketAddress);
+        }
+        snapshots.computeIfPresent(serviceName, (k, current) -> {
+            List<Instance> instances = new ArrayList<>();
+            for (Instance existing : current.getInstances()) {
+                if (!existing.getIp().equals(inetSocketAddress.getHostString())
+                        || existing.getPort() != inetSocketAddress.getPort()) {
+                    instances.add(existing);
+                }
+            }
+            return new ServiceSnapshot(current.getVersion() + 1, instances);
+        });
+    }
+
+    @Override
+    public InetSocketAddress lookupService(String serviceName) {
+        return lookup(serviceName, null);
+    }
+
+    @Override
+    public InetSocketAddress lookupService(RpcRequest request) {
+        return lookup(request.getInterfaceName(), request);
+    }
+
+    private InetSocketAddress lookup(String serviceName, RpcRequest request) {
+        ServiceSnapshot snapshot = snapshots.get(serviceName);
+        if (snapshot == null || snapshot.getInstances().isEmpty()) {
+            logger.error("找不到对应的服务: " + serviceName);
+            throw new RpcException(RpcError.SERVICE_NOT_FOUND);
+        }
+        return snapshot.select(loadBalancer, request);
+    }
+
+    @Override
+    public List<InetSocketAddress> lookupAllServices(String serviceName) {
+        ServiceSnapshot snapshot = snapshots.get(serviceName);
+        if (snapshot == null) {
+            return Collections.emptyList();
+        }
+        List<InetSocketAddress> addresses = new ArrayList<>();
+        for (Instance instance : snapshot.getInstances()) {
+            addresses.add(snapshot.addressOf(instance));
+        }
+        return addresses;
+    }
+
+    /**
+     * @return 注册过的服务名，用于调试
+     */
+    public static Set<String> getServiceNames() {
+        return Collections.unmodifiableSet(snapshots.keySet());
+    }
+
+    private static boolean sameAddress(Instance a, Instance b) {
+        return a.getIp().equals(b.getIp()) && a.getPort() == b.getPort();
+    }
+
+}
@@ -0,0 +1,352 @@
+package panda.rpc.registry;
+
+import com.alibaba.nacos.api.naming.NamingService;
+import com.alibaba.nacos.api.naming.listener.EventListener;
+import com.alibaba.nacos.api.naming.listener.NamingEvent;
+import com.alibaba.nacos.api.naming.pojo.Instance;
+import com.alibaba.nacos.api.naming.pojo.ListView;
+import com.alibaba.nacos.api.naming.pojo.ServiceInfo;
+import com.alibaba.nacos.api.selector.AbstractSelector;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 进程内的NamingService，不连接Nacos服务端，用于在没有Nacos的环境下验证服务发现
+ * 只按服务名区分实例，分组和集群参数被忽略；注册和注销后在调用线程上同步通知订阅者
+ */
+public class LocalNamingService implements NamingService {
+
+    private final Map<String, List<Instance>>      services  = new ConcurrentHashMap<>();
+    private final Map<String, List<EventListener>> listeners = new ConcurrentHashMap<>();
+
+    private final Random random = new Random();
+
+    @Override
+    public void registerInstance(String serviceName, String ip, int port) {
+        registerInstance(serviceName, ip, port, null);
+    }
+
+    @Override
+    public void registerInstance(String serviceName, String groupName, String ip, int port) {
+        registerInstance(serviceName, ip, port, null);
+    }
+
+    @Override
+    public void registerInstance(String serviceName, String ip, int port, String clusterName) {
+        Instance instance = new Instance();
+        instance.setIp(ip);
+        instance.setPort(port);
+        instance.setClusterName(clusterName);
+        registerInstance(serviceName, instance);
+    }
+
+    @Override
+    public void registerInstance(String serviceName, String groupName, String ip, int port, String clusterName) {
+        registerInstance(serviceName, ip, port, clusterName);
+    }
+
+    @Override
+    public void registerInstance(String serviceName, Instance instance) {
+        synchronized (this) {
+            List<Instance> instances = new ArrayList<>(services.getOrDefault(serviceName, Collections.emptyList()));
+            instances.removeIf(existing -> sameAddress(existing, instance.getIp(), instance.getPort()));
+            instances.add(instance);
+            services.put(serviceName, instances);
+        }
+        notifyListeners(serviceName);
+    }
+
+    @Override
+    public void registerInstance(String serviceName, String groupName, Instance instance) {
+        registerInstance(serviceName, instance);
+    }
+
+    @Override
+    public void deregisterInstance(String serviceName, String ip, int port) {
+        synchronized (this) {
+            List<Instance> instances = new ArrayList<>(services.getOrDefault(serviceName, Collections.emptyList()));
+            if (!instances.removeIf(existing -> sameAddress(existing, ip, port))) {
+                return;
+            }
+            services.put(serviceName, instances);
+        }
+        notifyListeners(serviceName);
+    }
+
+    @Override
+    public void deregisterInstance(String serviceName, String groupName, String ip, int port) {
+        deregisterInstance(serviceName, ip, port);
+    }
+
+    @Override
+    public void deregisterInstance(String serviceName, String ip, int port, String clusterName) {
+        deregisterInstance(serviceName, ip, port);
+    }
+
+    @Override
+    public void deregisterInstance(String serviceName, String groupName, String ip, int port, String clusterName) {
+        deregisterInstance(serviceName, ip, port);
+    }
+
+    @Override
+    public void deregisterInstance(String serviceName, Instance instance) {
+        deregisterInstance(serviceName, instance.getIp(), instance.getPort());
+    }
+
+    @Override
+    public void deregisterInstance(String serviceName, String groupName, Instance instance) {
+        deregisterInstance(serviceName, instance.getIp(), instance.getPort());
+    }
+
+    @Override
+    public List<Instance> getAllInstances(String serviceName) {
+        return new ArrayList<>(services.getOrDefault(serviceName, Collections.emptyList()));
+    }
+
+    @Override
+    public List<Instance> getAllInstances(String serviceName, String groupName) {
+        return getAllInstances(serviceName);
+    }
+
+    @Override
+    public List<Instance> getAllInstances(String serviceName, boolean subscribe) {
+        return getAllInstances(serviceName);
+    }
+
+    @Override
+    public List<Instance> getAllInstances(String serviceName, String groupName, boolean subscribe) {
+        return getAllInstances(serviceName);
+    }
+
+    @Override
+    public List<Instance> getAllInstances(String serviceName, List<String> clusters) {
+        return getAllInstances(serviceName);
+    }
+
+    @Override
+    public List<Instance> getAllInstances(String serviceName, String groupName, List<String> clusters) {
+        return getAllInstances(serviceName);
+    }
+
+    @Override
+    public List<Instance> getAllInstances(String serviceName, List<String> clusters, boolean subscribe) {
+        return getAllInstances(serviceName);
+    }
+
+    @Override
+    public List<Instance> getAllInstances(String serviceName, String groupName, List<String> clusters,
+                                          boolean subscribe) {
+        return getAllInstances(serviceName);
+    }
+
+    @Override
+    public List<Instance> selectInstances(String serviceName, boolean healthy) {
+        List<Instance> selected = new ArrayList<>();
+        for (Instance instance : services.getOrDefault(serviceName, Collections.emptyList())) {
+            if (instance.isEnabled() && instance.isHealthy() == healthy) {
+                selected.add(instance);
+            }
+        }
+        return selected;
+    }
+
+    @Override
+    public List<Instance> selectInstances(String serviceName, String groupName, boolean healthy) {
+        return selectInstances(serviceName, healthy);
+    }
+
+    @Override
+    public List<Instance> selectInstances(String serviceName, boolean healthy, boolean subscribe) {
+        return selectInstances(serviceName, healthy);
+    }
+
+    @Override
+    public List<Instance> selectInstances(String serviceName, String groupName, boolean healthy,
+                                          boolean subscribe) {
+        return selectInstances(serviceName, healthy);
+    }
+
+    @Override
+    public List<Instance> selectInstances(String serviceName, List<String> clusters, boolean healthy) {
+        return selectInstances(serviceName, healthy);
+    }
+
+    @Override
+    public List<Instance> selectInstances(String serviceName, String groupName, List<String> clusters,
+                                          boolean healthy) {
+        return selectInstances(serviceName, healthy);
+    }
+
+    @Override
+    public List<Instance> selectInstances(String serviceName, List<String> clusters, boolean healthy,
+                                          boolean subscribe) {
+        return selectInstances(serviceName, healthy);
+    }
+
+    @Override
+    public List<Instance> selectInstances(String serviceName, String groupName, List<String> clusters,
+                                          boolean healthy, boolean subscribe) {
+        return selectInstances(serviceName, healthy);
+    }
+
+    @Override
+    public Instance selectOneHealthyInstance(String serviceName) {
+        List<Instance> healthy = selectInstances(serviceName, true);
+        if (healthy.isEmpty()) {
+            return null;
+        }
+        synchronized (random) {
+            return healthy.get(random.nextInt(healthy.size()));
+        }
+    }
+
+    @Override
+    public Instance selectOneHealthyInstance(String serviceName, String groupName) {
+        return selectOneHealthyInstance(serviceName);
+    }
+
+    @Override
+    public Instance selectOneHealthyInstance(String serviceName, boolean subscribe) {
+        return selectOneHealthyInstance(serviceName);
+    }
+
+    @Override
+    public Instance selectOneHealthyInstance(String serviceName, String groupName, boolean subscribe) {
+        return selectOneHealthyInstance(serviceName);
+    }
+
+    @Override
+    public Instance selectOneHealthyInstance(String serviceName, List<String> clusters) {
+        return selectOneHealthyInstance(serviceName);
+    }
+
+    @Override
+    public Instance selectOneHealthyInstance(String serviceName, String groupName, List<String> clusters) {
+        return selectOneHealthyInstance(serviceName);
+    }
+
+    @Override
+    public Instance selectOneHealthyInstance(String serviceName, List<String> clusters, boolean subscribe) {
+        return selectOneHealthyInstance(serviceName);
+    }
+
+    @Override
+    public Instance selectOneHealthyInstance(String serviceName, String groupName, List<String> clusters,
+                                             boolean subscribe) {
+        return selectOneHealthyInstance(serviceName);
+    }
+
+    /**
+     * 与Nacos客户端一样，订阅后立即收到一次当前的实例列表
+     */
+    @Override
+    public void subscribe(String serviceName, EventListener listener) {
+        listeners.computeIfAbsent(serviceName, k -> new CopyOnWriteArrayList<>()).add(listener);
+        listener.onEvent(new NamingEvent(serviceName, getAllInstances(serviceName)));
+    }
+
+    @Override
+    public void subscribe(String serviceName, String groupName, EventListener listener) {
+        subscribe(serviceName, listener);
+    }
+
+    @Override
+    public void subscribe(String serviceName, List<String> clusters, EventListener listener) {
+        subscribe(serviceName, listener);
+    }
+
+    @Override
+    public void subscribe(String serviceName, String groupName, List<String> clusters, EventListener listener) {
+        subscribe(serviceName, listener);
+    }
+
+    @Override
+    public void unsubscribe(String serviceName, EventListener listener) {
+        List<EventListener> subscribed = listeners.get(serviceName);
+        if (subscribed != null) {
+            subscribed.remove(listener);
+        }
+    }
+
+    @Override
+    public void unsubscribe(String serviceName, String groupName, EventListener listener) {
+        unsubscribe(serviceName, listener);
+    }
+
+    @Override
+    public void unsubscribe(String serviceName, List<String> clusters, EventListener listener) {
+        unsubscribe(serviceName, listener);
+    }
+
+    @Override
+    public void unsubscribe(String serviceName, String groupName, List<String> clusters, EventListener listener) {
+        unsubscribe(serviceName, listener);
+    }
+
+    @Override
+    public ListView<String> getServicesOfServer(int pageNo, int pageSize) {
+        List<String> names = new ArrayList<>(services.keySet());
+        Collections.sort(names);
+        int from = Math.min(Math.max(pageNo - 1, 0) * pageSize, names.size());
+        int to = Math.min(from + pageSize, names.size());
+        ListView<String> view = new ListView<>();
+        view.setCount(names.size());
+        view.setData(new ArrayList<>(names.subList(from, to)));
+        return view;
+    }
+
+    @Override
+    public ListView<String> getServicesOfServer(int pageNo, int pageSize, String groupName) {
+        return getServicesOfServer(pageNo, pageSize);
+    }
+
+    @Override
+    public ListView<String> getServicesOfServer(int pageNo, int pageSize, AbstractSelector selector) {
+        return getServicesOfServer(pageNo, pageSize);
+    }
+
+    @Override
+    public ListView<String> getServicesOfServer(int pageNo, int pageSize, String groupName,
+                                                AbstractSelector selector) {
+        return getServicesOfServer(pageNo, pageSize);
+    }
+
+    @Override
+    public List<ServiceInfo> getSubscribeServices() {
+        List<ServiceInfo> subscribed = new ArrayList<>();
+        for (Map.Entry<String, List<EventListener>> entry : listeners.entrySet()) {
+            if (!entry.getValue().isEmpty()) {
+                ServiceInfo info = new ServiceInfo(entry.getKey(), "");
+                info.setHosts(getAllInstances(entry.getKey()));
+                subscribed.add(info);
+            }
+        }
+        return subscribed;
+    }
+
+    @Override
+    public String getServerStatus() {
+        return "UP";
+    }
+
+    private void notifyListeners(String serviceName) {
+        List<EventListener> subscribed = listeners.get(serviceName);
+        if (subscribed == null) {
+            return;
+        }
+        for (EventListener listener : subscribed) {
+            listener.onEvent(new NamingEvent(serviceName, getAllInstances(serviceName)));
+        }
+    }
+
+    private static boolean sameAddress(Instance instance, String ip, int port) {
+        return instance.getIp().equals(ip) && instance.getPort() == port;
+    }
+
+}
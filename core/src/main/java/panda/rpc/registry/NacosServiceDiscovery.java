@@ -1,45 +1,200 @@
 package panda.rpc.registry;
 
 import com.alibaba.nacos.api.exception.NacosException;
+import com.alibaba.nacos.api.naming.NamingService;
+import com.alibaba.nacos.api.naming.listener.EventListener;
+import com.alibaba.nacos.api.naming.listener.NamingEvent;
 import com.alibaba.nacos.api.naming.pojo.Instance;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import panda.rpc.entity.RpcRequest;
 import panda.rpc.enumeration.RpcError;
 import panda.rpc.exception.RpcException;
+import panda.rpc.factory.ThreadPoolFactory;
 import panda.rpc.loadbalancer.LoadBalancer;
 import panda.rpc.loadbalancer.RandomLoadBalancer;
 import panda.rpc.util.NacosUtil;
 
 import java.net.InetSocketAddress;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Nacos服务发现
+ * 每个服务在本地保存一份实例快照，第一次查找时拉取并订阅，之后由Nacos推送的变更和定时对账更新，
+ * 查找服务只读一次快照再交给负载均衡器选择，不再每次调用都访问NamingService
+ */
 public class NacosServiceDiscovery implements ServiceDiscovery {
 
     private static final Logger logger = LoggerFactory.getLogger(NacosServiceDiscovery.class);
 
-    private final LoadBalancer loadBalancer;
+    /**
+     * 定时对账的间隔，单位毫秒，防止漏掉推送
+     */
+    private static final long RECONCILE_MILLIS = Long.getLong("srpc.discovery.reconcileMillis", 30000L);
+
+    private final LoadBalancer  loadBalancer;
+    private final NamingService namingService;
+
+    private final Map<String, ServiceSnapshot> snapshots = new ConcurrentHashMap<>();
+    private final Map<String, EventListener>   listeners = new ConcurrentHashMap<>();
+
+    /**
+     * 定时对账任务，共用同一个调度线程，close时取消，否则调度线程会一直持有本对象
+     */
+    private final ScheduledFuture<?> reconcileTask;
+
+    private volatile boolean closed;
 
     public NacosServiceDiscovery(LoadBalancer loadBalancer) {
+        this(loadBalancer, NacosUtil.getNamingService());
+    }
+
+    /**
+     * @param namingService 可以传入{@link LocalNamingService}，不连接Nacos服务端
+     */
+    public NacosServiceDiscovery(LoadBalancer loadBalancer, NamingService namingService) {
         if (loadBalancer == null)
             this.loadBalancer = new RandomLoadBalancer();
         else
             this.loadBalancer = loadBalancer;
+        this.namingService = namingService;
+        if (RECONCILE_MILLIS > 0) {
+            reconcileTask = ThreadPoolFactory.createScheduledThreadPool("nacos-discovery-reconcile")
+                    .scheduleWithFixedDelay(this::reconcile, RECONCILE_MILLIS, RECONCILE_MILLIS,
+                            TimeUnit.MILLISECONDS);
+        } else {
+            reconcileTask = null;
+        }
+    }
+
+    /**
+     * 取消定时对账和所有订阅，之后不再跟随实例变更
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (reconcileTask != null) {
+            reconcileTask.cancel(false);
+        }
+        for (Map.Entry<String, EventListener> entry : listeners.entrySet()) {
+            try {
+                namingService.unsubscribe(entry.getKey(), entry.getValue());
+            } catch (NacosException e) {
+                logger.warn("取消订阅服务 {} 失败: {}", entry.getKey(), e.getMessage());
+            }
+        }
+        listeners.clear();
     }
 
     @Override
     public InetSocketAddress lookupService(String serviceName) {
-        try {
-            List<Instance> instances = NacosUtil.getAllInstance(serviceName);
-            if (instances.size() == 0) {
-                logger.error("找不到对应的服务: " + serviceName);
-                throw new RpcException(RpcError.SERVICE_NOT_FOUND);
+        return lookup(serviceName, null);
+    }
+
+    @Override
+    public InetSocketAddress lookupService(RpcRequest request) {
+        return lookup(request.getInterfaceName(), request);
+    }
+
+    private InetSocketAddress lookup(String serviceName, RpcRequest request) {
+        ServiceSnapshot snapshot = snapshots.get(serviceName);
+        if (snapshot == null) {
+            snapshot = subscribe(serviceName);
+            if (snapshot == null) {
+                return null;
             }
-            Instance instance = loadBalancer.select(instances);
-            return new InetSocketAddress(instance.getIp(), instance.getPort());
+        }
+        List<Instance> instances = snapshot.getInstances();
+        if (instances.size() == 0) {
+            logger.error("找不到对应的服务: " + serviceName);
+            throw new RpcException(RpcError.SERVICE_NOT_FOUND);
+        }
+        return snapshot.select(loadBalancer, request);
+    }
+
+    @Override
+    public List<InetSocketAddress> lookupAllServices(String serviceName) {
+        ServiceSnapshot snapshot = snapshots.get(serviceName);
+        if (snapshot == null) {
+            snapshot = subscribe(serviceName);
+        }
+        List<InetSocketAddress> addresses = new ArrayList<>();
+        if (snapshot != null) {
+            for (Instance instance : snapshot.getInstances()) {
+                addresses.add(snapshot.addressOf(instance));
+            }
+        }
+        return addresses;
+    }
+
+    /**
+     * @return 当前快照的版本号，没有查找过该服务时返回0
+     */
+    public long getVersion(String serviceName) {
+        ServiceSnapshot snapshot = snapshots.get(serviceName);
+        return snapshot == null ? 0 : snapshot.getVersion();
+    }
+
+    /**
+     * 第一次查找服务时拉取实例并订阅变更，并发的第一次查找只订阅一次
+     */
+    private synchronized ServiceSnapshot subscribe(String serviceName) {
+        ServiceSnapshot snapshot = snapshots.get(serviceName);
+        if (snapshot != null || closed) {
+            return snapshot;
+        }
+        try {
+            update(serviceName, namingService.getAllInstances(serviceName));
+            EventListener listener = event -> {
+                if (event instanceof NamingEvent) {
+                    update(serviceName, ((NamingEvent) event).getInstances());
+                }
+            };
+            namingService.subscribe(serviceName, listener);
+            listeners.put(serviceName, listener);
         } catch (NacosException e) {
             logger.error("获取服务时有错误发生:", e);
         }
-        return null;
+        return snapshots.get(serviceName);
+    }
+
+    private void update(String serviceName, List<Instance> instances) {
+        if (instances == null) {
+            return;
+        }
+        snapshots.compute(serviceName, (k, current) -> {
+            if (current != null && current.sameAs(instances)) {
+                return current;
+            }
+            ServiceSnapshot updated = new ServiceSnapshot(current == null ? 1 : current.getVersion() + 1,
+                    instances);
+            if (current != null) {
+                logger.info("服务 {} 的实例变更为 {} 个，版本 {}", serviceName, instances.size(),
+                        updated.getVersion());
+            }
+            return updated;
+        });
+    }
+
+    /**
+     * 重新拉取已订阅服务的实例，推送丢失时也能最终一致，包内可见以便测试直接触发
+     */
+    void reconcile() {
+        for (String serviceName : snapshots.keySet()) {
+            try {
+                update(serviceName, namingService.getAllInstances(serviceName));
+            } catch (Exception e) {
+                logger.warn("服务 {} 对账失败: {}", serviceName, e.getMessage());
+            }
+        }
     }
 
 }
@@ -26,4 +26,9 @@ public class NacosServiceRegistry implements ServiceRegistry {
         }
     }
 
+    @Override
+    public void clearRegistry() {
+        NacosUtil.clearRegistry();
+    }
+
 }
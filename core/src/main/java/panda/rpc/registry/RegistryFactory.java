@@ -0,0 +1,43 @@
+package panda.rpc.registry;
+
+import panda.rpc.loadbalancer.LoadBalancer;
+
+/**
+ * 按系统属性 srpc.registry 创建默认的注册中心实现，服务端和客户端的构造方法也可以直接传入实现
+ * <ul>
+ *     <li>nacos：默认值，Nacos地址由 srpc.nacos.address 指定</li>
+ *     <li>memory：进程内注册表，见{@link InMemoryServiceRegistry}</li>
+ *     <li>file：静态文件，路径由 srpc.registry.file 指定，见{@link StaticFileRegistry}</li>
+ * </ul>
+ */
+public class RegistryFactory {
+
+    private static final String REGISTRY      = System.getProperty("srpc.registry", "nacos");
+    private static final String REGISTRY_FILE = System.getProperty("srpc.registry.file", "srpc-registry.properties");
+
+    private RegistryFactory() {
+    }
+
+    public static ServiceRegistry createServiceRegistry() {
+        switch (REGISTRY) {
+            case "memory":
+                return new InMemoryServiceRegistry();
+            case "file":
+                return new StaticFileRegistry(REGISTRY_FILE);
+            default:
+                return new NacosServiceRegistry();
+        }
+    }
+
+    public static ServiceDiscovery createServiceDiscovery(LoadBalancer loadBalancer) {
+        switch (REGISTRY) {
+            case "memory":
+                return new InMemoryServiceRegistry(loadBalancer);
+            case "file":
+                return new StaticFileRegistry(REGISTRY_FILE, loadBalancer);
+            default:
+                return new NacosServiceDiscovery(loadBalancer);
+        }
+    }
+
+}
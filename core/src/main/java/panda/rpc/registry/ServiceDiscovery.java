@@ -1,11 +1,15 @@
 package panda.rpc.registry;
 
+import panda.rpc.entity.RpcRequest;
+
 import java.net.InetSocketAddress;
+import java.util.Collections;
+import java.util.List;
 
 /**
  * 服务发现接口
  */
-public interface ServiceDiscovery {
+public interface ServiceDiscovery extends AutoCloseable {
 
     /**
      * 根据服务名称查找服务实体
@@ -15,4 +19,32 @@ public interface ServiceDiscovery {
      */
     InetSocketAddress lookupService(String serviceName);
 
+    /**
+     * 根据请求查找服务实体，负载均衡器可以使用请求中的信息
+     *
+     * @param request 请求，接口名即服务名称
+     * @return 服务实体
+     */
+    default InetSocketAddress lookupService(RpcRequest request) {
+        return lookupService(request.getInterfaceName());
+    }
+
+    /**
+     * 查找提供该服务的所有实例，用于客户端启动时预先建立连接
+     *
+     * @param serviceName 服务名称
+     * @return 所有实例的地址，不支持时只返回负载均衡选出的一个
+     */
+    default List<InetSocketAddress> lookupAllServices(String serviceName) {
+        InetSocketAddress address = lookupService(serviceName);
+        return address == null ? Collections.emptyList() : Collections.singletonList(address);
+    }
+
+    /**
+     * 释放订阅、定时任务等资源，不再使用时调用
+     */
+    @Override
+    default void close() {
+    }
+
 }
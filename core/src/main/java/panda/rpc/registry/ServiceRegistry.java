@@ -15,5 +15,10 @@ public interface ServiceRegistry {
      */
     void register(String serviceName, InetSocketAddress inetSocketAddress);
 
+    /**
+     * 注销本进程注册过的所有服务，服务端关闭时调用
+     */
+    default void clearRegistry() {
+    }
 
 }
@@ -0,0 +1,84 @@
+package panda.rpc.registry;
+
+import com.alibaba.nacos.api.naming.pojo.Instance;
+import panda.rpc.entity.RpcRequest;
+import panda.rpc.loadbalancer.InstanceStats;
+import panda.rpc.loadbalancer.LoadBalancer;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 某个服务在某一时刻的实例列表，创建后不再修改
+ * 实例对应的地址和调用统计在创建时算好，查找服务时不再为每次调用新建InetSocketAddress
+ */
+final class ServiceSnapshot {
+
+    private final long                               version;
+    private final List<Instance>                     instances;
+    private final Map<Instance, InetSocketAddress>   addresses;
+    private final InstanceStats[]                    stats;
+    private final Set<String>                        keys;
+
+    ServiceSnapshot(long version, List<Instance> instances) {
+        this.version = version;
+        this.instances = Collections.unmodifiableList(new ArrayList<>(instances));
+        this.addresses = new IdentityHashMap<>(instances.size() * 2);
+        this.stats = new InstanceStats[instances.size()];
+        for (int i = 0; i < stats.length; i++) {
+            Instance instance = this.instances.get(i);
+            InetSocketAddress address = new InetSocketAddress(instance.getIp(), instance.getPort());
+            addresses.put(instance, address);
+            stats[i] = InstanceStats.of(address);
+        }
+        this.keys = keys(instances);
+    }
+
+    long getVersion() {
+        return version;
+    }
+
+    List<Instance> getInstances() {
+        return instances;
+    }
+
+    /**
+     * @param instance 必须是该快照中的实例
+     */
+    InetSocketAddress addressOf(Instance instance) {
+        InetSocketAddress address = addresses.get(instance);
+        return address != null ? address : new InetSocketAddress(instance.getIp(), instance.getPort());
+    }
+
+    /**
+     * 由负载均衡器选出一个实例
+     *
+     * @param request 本次调用的请求，可以为null
+     */
+    InetSocketAddress select(LoadBalancer loadBalancer, RpcRequest request) {
+        return addressOf(loadBalancer.select(instances, stats, request));
+    }
+
+    /**
+     * 实例的地址、权重和状态都没有变化时返回true，定时对账时据此跳过无变化的更新
+     */
+    boolean sameAs(List<Instance> other) {
+        return keys.equals(keys(other));
+    }
+
+    private static Set<String> keys(List<Instance> instances) {
+        Set<String> keys = new HashSet<>(instances.size() * 2);
+        for (Instance instance : instances) {
+            keys.add(instance.getIp() + ':' + instance.getPort() + '#' + instance.getWeight()
+                    + '#' + instance.isHealthy() + '#' + instance.isEnabled());
+        }
+        return keys;
+    }
+
+}
@@ -0,0 +1,149 @@
+package panda.rpc.registry;
+
+import com.alibaba.nacos.api.naming.pojo.Instance;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import panda.rpc.entity.RpcRequest;
+import panda.rpc.enumeration.RpcError;
+import panda.rpc.exception.RpcException;
+import panda.rpc.loadbalancer.LoadBalancer;
+import panda.rpc.loadbalancer.RandomLoadBalancer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * 从静态文件读取服务地址，用于固定地址部署，运行时不访问任何注册中心
+ * 文件为properties格式，每行一个服务，多个地址用逗号分隔，地址后可以用@指定权重：
+ * <pre>
+ * panda.rpc.HelloService=192.168.1.10:9000,192.168.1.11:9000@2
+ * </pre>
+ * 文件先按路径查找，找不到时再从classpath加载；服务端的注册是空操作，地址以文件为准
+ */
+public class StaticFileRegistry implements ServiceRegistry, ServiceDiscovery {
+
+    private static final Logger logger = LoggerFactory.getLogger(StaticFileRegistry.class);
+
+    private final LoadBalancer                 loadBalancer;
+    private final Map<String, ServiceSnapshot> snapshots;
+
+    public StaticFileRegistry(String location) {
+        this(location, null);
+    }
+
+    public StaticFileRegistry(String location, LoadBalancer loadBalancer) {
+        this.loadBalancer = loadBalancer == null ? new RandomLoadBalancer() : loadBalancer;
+        this.snapshots = load(location);
+        logger.info("从 {} 读取了 {} 个服务的地址", location, snapshots.size());
+    }
+
+    @Override
+    public void register(String serviceName, InetSocketAddress inetSocketAddress) {
+        if (!snapshots.containsKey(serviceName)) {
+            logger.warn("服务 {} 不在静态注册文件中，客户端将无法发现 {}", serviceName, inetSocketAddress);
+        }
+    }
+
+    @Override
+    public InetSocketAddress lookupService(String serviceName) {
+        return lookup(serviceName, null);
+    }
+
+    @Override
+    public InetSocketAddress lookupService(RpcRequest request) {
+        return lookup(request.getInterfaceName(), request);
+    }
+
+    private InetSocketAddress lookup(String serviceName, RpcRequest request) {
+        ServiceSnapshot snapshot = snapshots.get(serviceName);
+        if (snapshot == null || snapshot.getInstances().isEmpty()) {
+            logger.error("找不到对应的服务: " + serviceName);
+            throw new RpcException(RpcError.SERVICE_NOT_FOUND);
+        }
+        return snapshot.select(loadBalancer, request);
+    }
+
+    @Override
+    public List<InetSocketAddress> lookupAllServices(String serviceName) {
+        ServiceSnapshot snapshot = snapshots.get(serviceName);
+        if (snapshot == null) {
+            return Collections.emptyList();
+        }
+        List<InetSocketAddress> addresses = new ArrayList<>();
+        for (Instance instance : snapshot.getInstances()) {
+            addresses.add(snapshot.addressOf(instance));
+        }
+        return addresses;
+    }
+
+    private static Map<String, ServiceSnapshot> load(String location) {
+        Properties properties = new Properties();
+        try (Reader reader = open(location)) {
+            properties.load(reader);
+        } catch (IOException e) {
+            logger.error("读取静态注册文件 {} 时有错误发生:", location, e);
+            throw new RpcException(RpcError.FAILED_TO_CONNECT_TO_SERVICE_REGISTRY, location);
+        }
+        Map<String, ServiceSnapshot> snapshots = new HashMap<>();
+        for (String serviceName : properties.stringPropertyNames()) {
+            List<Instance> instances = new ArrayList<>();
+            for (String endpoint : properties.getProperty(serviceName).split(",")) {
+                endpoint = endpoint.trim();
+                if (!endpoint.isEmpty()) {
+                    instances.add(parse(serviceName, endpoint));
+                }
+            }
+            snapshots.put(serviceName, new ServiceSnapshot(1, instances));
+        }
+        return snapshots;
+    }
+
+    private static Reader open(String location) throws IOException {
+        Path path = Paths.get(location);
+        if (Files.isRegularFile(path)) {
+            return Files.newBufferedReader(path, StandardCharsets.UTF_8);
+        }
+        InputStream in = StaticFileRegistry.class.getClassLoader().getResourceAsStream(location);
+        if (in == null) {
+            throw new IOException("找不到文件 " + location);
+        }
+        return new InputStreamReader(in, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 解析 host:port 或 host:port@weight
+     */
+    private static Instance parse(String serviceName, String endpoint) {
+        try {
+            double weight = 1.0D;
+            int at = endpoint.indexOf('@');
+            if (at >= 0) {
+                weight = Double.parseDouble(endpoint.substring(at + 1).trim());
+                endpoint = endpoint.substring(0, at).trim();
+            }
+            int colon = endpoint.lastIndexOf(':');
+            Instance instance = new Instance();
+            instance.setIp(endpoint.substring(0, colon));
+            instance.setPort(Integer.parseInt(endpoint.substring(colon + 1)));
+            instance.setWeight(weight);
+            return instance;
+        } catch (RuntimeException e) {
+            logger.error("服务 {} 的地址 {} 格式不正确", serviceName, endpoint);
+            throw new RpcException(RpcError.FAILED_TO_CONNECT_TO_SERVICE_REGISTRY, endpoint);
+        }
+    }
+
+}
@@ -0,0 +1,44 @@
+package panda.rpc.serializer;
+
+import com.esotericsoftware.kryo.Kryo;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * 有界的Kryo对象池
+ * Kryo不是线程安全的，并且创建和注册类的代价较高，借出后独占使用，用完归还以便复用
+ * 池满时归还的实例直接丢弃，借用时池为空则新建，因此不会阻塞调用方
+ */
+class BoundedKryoPool {
+
+    private final Queue<Kryo>    pool = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger  size = new AtomicInteger();
+    private final int            capacity;
+    private final Supplier<Kryo> factory;
+
+    BoundedKryoPool(int capacity, Supplier<Kryo> factory) {
+        this.capacity = capacity;
+        this.factory = factory;
+    }
+
+    Kryo borrow() {
+        Kryo kryo = pool.poll();
+        if (kryo == null) {
+            return factory.get();
+        }
+        size.decrementAndGet();
+        return kryo;
+    }
+
+    void release(Kryo kryo) {
+        if (size.incrementAndGet() > capacity) {
+            size.decrementAndGet();
+            return;
+        }
+        pool.offer(kryo);
+    }
+
+}
@@ -0,0 +1,29 @@
+package panda.rpc.serializer;
+
+import io.netty.buffer.ByteBuf;
+
+/**
+ * 可以直接基于ByteBuf进行序列化与反序列化的序列化器，省去数据包与byte[]之间的拷贝开销
+ */
+public interface BufferSerializer extends CommonSerializer {
+
+    /**
+     * 把对象序列化后从out的写指针处直接写入
+     *
+     * @param obj 待序列化的对象
+     * @param out 出站缓冲区，容量不足时会自动扩容
+     */
+    void serialize(Object obj, ByteBuf out);
+
+    /**
+     * 从in的读指针处读取length个字节并反序列化
+     * 调用方负责在返回后把读指针移动到数据末尾，实现类无需关心读指针的最终位置
+     *
+     * @param in     入站缓冲区，通常是Netty池化的累积缓冲区
+     * @param length 数据长度
+     * @param clazz  目标类型
+     * @return 反序列化得到的对象
+     */
+    Object deserialize(ByteBuf in, int length, Class<?> clazz);
+
+}
@@ -12,19 +12,11 @@ public interface CommonSerializer {
 
     Integer DEFAULT_SERIALIZER = KRYO_SERIALIZER;
 
+    /**
+     * 获取编号对应的共享序列化器实例，参见 {@link SerializerRegistry}
+     */
     static CommonSerializer getByCode(int code) {
-        switch (code) {
-            case 0:
-                return new KryoSerializer();
-            case 1:
-                return new JsonSerializer();
-            case 2:
-                return new HessianSerializer();
-            case 3:
-                return new ProtobufSerializer();
-            default:
-                return null;
-        }
+        return SerializerRegistry.get(code);
     }
 
     byte[] serialize(Object obj);
@@ -33,4 +25,12 @@ public interface CommonSerializer {
 
     int getCode();
 
+    /**
+     * 反序列化后Object类型的字段能否还原成原来的类型
+     * 不能还原时请求必须带着参数类型传输，不能使用只带方法编号的精简请求
+     */
+    default boolean isTypePreserving() {
+        return true;
+    }
+
 }
@@ -2,6 +2,10 @@ package panda.rpc.serializer;
 
 import com.caucho.hessian.io.HessianInput;
 import com.caucho.hessian.io.HessianOutput;
+import com.caucho.hessian.io.SerializerFactory;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.ByteBufOutputStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import panda.rpc.enumeration.SerializerCode;
@@ -14,15 +18,21 @@ import java.io.IOException;
 /**
  * 基于Hessian协议的序列化器
  */
-public class HessianSerializer implements CommonSerializer {
+public class HessianSerializer implements BufferSerializer {
 
     private static final Logger logger = LoggerFactory.getLogger(HessianSerializer.class);
 
+    /**
+     * SerializerFactory缓存了各个类型的序列化器，所有输入输出流共用一个，避免每次都重新创建
+     */
+    private static final SerializerFactory serializerFactory = new SerializerFactory();
+
     @Override
     public byte[] serialize(Object obj) {
         HessianOutput hessianOutput = null;
         try (ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream()) {
             hessianOutput = new HessianOutput(byteArrayOutputStream);
+            hessianOutput.setSerializerFactory(serializerFactory);
             hessianOutput.writeObject(obj);
             return byteArrayOutputStream.toByteArray();
         } catch (IOException e) {
@@ -39,11 +49,25 @@ public class HessianSerializer implements CommonSerializer {
         }
     }
 
+    @Override
+    public void serialize(Object obj, ByteBuf out) {
+        HessianOutput hessianOutput = new HessianOutput(new ByteBufOutputStream(out));
+        hessianOutput.setSerializerFactory(serializerFactory);
+        try {
+            hessianOutput.writeObject(obj);
+            hessianOutput.flush();
+        } catch (IOException e) {
+            logger.error("序列化时有错误发生:", e);
+            throw new SerializeException("序列化时有错误发生");
+        }
+    }
+
     @Override
     public Object deserialize(byte[] bytes, Class<?> clazz) {
         HessianInput hessianInput = null;
         try (ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream(bytes)) {
             hessianInput = new HessianInput(byteArrayInputStream);
+            hessianInput.setSerializerFactory(serializerFactory);
             return hessianInput.readObject();
         } catch (IOException e) {
             logger.error("序列化时有错误发生:", e);
@@ -54,8 +78,22 @@ public class HessianSerializer implements CommonSerializer {
         }
     }
 
+    @Override
+    public Object deserialize(ByteBuf in, int length, Class<?> clazz) {
+        HessianInput hessianInput = new HessianInput(new ByteBufInputStream(in, length));
+        hessianInput.setSerializerFactory(serializerFactory);
+        try {
+            return hessianInput.readObject();
+        } catch (IOException e) {
+            logger.error("序列化时有错误发生:", e);
+            throw new SerializeException("序列化时有错误发生");
+        } finally {
+            hessianInput.close();
+        }
+    }
+
     @Override
     public int getCode() {
-        return SerializerCode.valueOf("HESSIAN").getCode();
+        return SerializerCode.HESSIAN.getCode();
     }
 }
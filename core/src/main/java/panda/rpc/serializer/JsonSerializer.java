@@ -1,7 +1,11 @@
 package panda.rpc.serializer;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MapperFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.ByteBufOutputStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import panda.rpc.entity.RpcRequest;
@@ -9,15 +13,18 @@ import panda.rpc.enumeration.SerializerCode;
 import panda.rpc.exception.SerializeException;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 
 /**
  * 使用JSON格式的序列化器
  */
-public class JsonSerializer implements CommonSerializer {
+public class JsonSerializer implements BufferSerializer {
 
     private static final Logger logger = LoggerFactory.getLogger(JsonSerializer.class);
 
-    private ObjectMapper objectMapper = new ObjectMapper();
+    //帧头中传输的字段声明为transient，JSON序列化时也一并忽略
+    private static final ObjectMapper objectMapper = new ObjectMapper().configure(MapperFeature.PROPAGATE_TRANSIENT_MARKER, true);
 
     @Override
     public byte[] serialize(Object obj) {
@@ -29,6 +36,16 @@ public class JsonSerializer implements CommonSerializer {
         }
     }
 
+    @Override
+    public void serialize(Object obj, ByteBuf out) {
+        try {
+            objectMapper.writeValue((OutputStream) new ByteBufOutputStream(out), obj);
+        } catch (IOException e) {
+            logger.error("序列化时有错误发生:", e);
+            throw new SerializeException("序列化时有错误发生");
+        }
+    }
+
     @Override
     public Object deserialize(byte[] bytes, Class<?> clazz) {
         try {
@@ -43,12 +60,31 @@ public class JsonSerializer implements CommonSerializer {
         }
     }
 
+    @Override
+    public Object deserialize(ByteBuf in, int length, Class<?> clazz) {
+        try {
+            Object obj = in.hasArray()
+                    ? objectMapper.readValue(in.array(), in.arrayOffset() + in.readerIndex(), length, clazz)
+                    : objectMapper.readValue((InputStream) new ByteBufInputStream(in, length), clazz);
+            if (obj instanceof RpcRequest) {
+                obj = handleRequest(obj);
+            }
+            return obj;
+        } catch (IOException e) {
+            logger.error("序列化时有错误发生:", e);
+            throw new SerializeException("序列化时有错误发生");
+        }
+    }
+
     /*
         这里由于使用JSON序列化和反序列化Object数组，无法保证反序列化后仍然为原实例类型
         需要重新判断处理
      */
     private Object handleRequest(Object obj) throws IOException {
         RpcRequest rpcRequest = (RpcRequest) obj;
+        if (rpcRequest.getParamTypes() == null) {
+            return rpcRequest;
+        }
         for (int i = 0; i < rpcRequest.getParamTypes().length; i++) {
             Class<?> clazz = rpcRequest.getParamTypes()[i];
             if (!clazz.isAssignableFrom(rpcRequest.getParameters()[i].getClass())) {
@@ -61,7 +97,12 @@ public class JsonSerializer implements CommonSerializer {
 
     @Override
     public int getCode() {
-        return SerializerCode.valueOf("JSON").getCode();
+        return SerializerCode.JSON.getCode();
+    }
+
+    @Override
+    public boolean isTypePreserving() {
+        return false;
     }
 
 }
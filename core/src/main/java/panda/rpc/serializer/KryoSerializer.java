@@ -1,8 +1,14 @@
 package panda.rpc.serializer;
 
 import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.KryoException;
+import com.esotericsoftware.kryo.io.ByteBufferInput;
+import com.esotericsoftware.kryo.io.ByteBufferOutput;
 import com.esotericsoftware.kryo.io.Input;
 import com.esotericsoftware.kryo.io.Output;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufOutputStream;
+import io.netty.buffer.CompositeByteBuf;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import panda.rpc.entity.RpcRequest;
@@ -10,17 +16,28 @@ import panda.rpc.entity.RpcResponse;
 import panda.rpc.enumeration.SerializerCode;
 import panda.rpc.exception.SerializeException;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
-
 /**
  * Kryo序列化器
  */
-public class KryoSerializer implements CommonSerializer {
+public class KryoSerializer implements BufferSerializer {
 
     private static final Logger logger = LoggerFactory.getLogger(KryoSerializer.class);
 
-    private static final ThreadLocal<Kryo> kryoThreadLocal = ThreadLocal.withInitial(() -> {
+    /**
+     * 直接写入ByteBuf的Output，每个线程一个，只在序列化期间绑定到出站缓冲区
+     */
+    private static final ThreadLocal<ByteBufOutput> outputThreadLocal = ThreadLocal.withInitial(ByteBufOutput::new);
+
+    /**
+     * 出站缓冲区由多段内存组成时使用的中转缓冲，只承担固定大小的分块，不会随消息变大而扩容
+     */
+    private static final ThreadLocal<Output> stagingThreadLocal = ThreadLocal.withInitial(() -> new Output(4096));
+
+    /**
+     * 配置好的Kryo实例在线程间复用，池的大小按CPU核数设置
+     */
+    private static final BoundedKryoPool kryoPool = new BoundedKryoPool(
+            Runtime.getRuntime().availableProcessors() * 2, () -> {
         Kryo kryo = new Kryo();
         kryo.register(RpcResponse.class);
         kryo.register(RpcRequest.class);
@@ -31,34 +48,142 @@ public class KryoSerializer implements CommonSerializer {
 
     @Override
     public byte[] serialize(Object obj) {
-        try (ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
-             Output output = new Output(byteArrayOutputStream)) {
-            Kryo kryo = kryoThreadLocal.get();
+        Kryo kryo = kryoPool.borrow();
+        try (Output output = new Output(256, -1)) {
             kryo.writeObject(output, obj);
-            kryoThreadLocal.remove();
             return output.toBytes();
         } catch (Exception e) {
             logger.error("序列化时有错误发生:", e);
             throw new SerializeException("序列化时有错误发生");
+        } finally {
+            kryoPool.release(kryo);
+        }
+    }
+
+    @Override
+    public void serialize(Object obj, ByteBuf out) {
+        //组合缓冲区扩容时会追加新的分段，只能经过中转缓冲写入
+        if (out instanceof CompositeByteBuf || out.nioBufferCount() != 1) {
+            serializeStaged(obj, out);
+            return;
+        }
+        ByteBufOutput output = outputThreadLocal.get();
+        output.attach(out);
+        Kryo kryo = kryoPool.borrow();
+        try {
+            kryo.writeObject(output, obj);
+            output.commit();
+        } catch (Exception e) {
+            logger.error("序列化时有错误发生:", e);
+            throw new SerializeException("序列化时有错误发生");
+        } finally {
+            output.detach();
+            kryoPool.release(kryo);
+        }
+    }
+
+    private void serializeStaged(Object obj, ByteBuf out) {
+        Output output = stagingThreadLocal.get();
+        output.setOutputStream(new ByteBufOutputStream(out));
+        Kryo kryo = kryoPool.borrow();
+        try {
+            kryo.writeObject(output, obj);
+            output.flush();
+        } catch (Exception e) {
+            logger.error("序列化时有错误发生:", e);
+            throw new SerializeException("序列化时有错误发生");
+        } finally {
+            output.setOutputStream(null);
+            kryoPool.release(kryo);
         }
     }
 
     @Override
     public Object deserialize(byte[] bytes, Class<?> clazz) {
-        try (ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream(bytes);
-             Input input = new Input(byteArrayInputStream)) {
-            Kryo kryo = kryoThreadLocal.get();
-            Object o = kryo.readObject(input, clazz);
-            kryoThreadLocal.remove();
-            return o;
+        Kryo kryo = kryoPool.borrow();
+        try (Input input = new Input(bytes)) {
+            return kryo.readObject(input, clazz);
+        } catch (Exception e) {
+            logger.error("反序列化时有错误发生:", e);
+            throw new SerializeException("反序列化时有错误发生");
+        } finally {
+            kryoPool.release(kryo);
+        }
+    }
+
+    @Override
+    public Object deserialize(ByteBuf in, int length, Class<?> clazz) {
+        //堆内存直接包装底层数组，直接内存包装成ByteBuffer，两种方式都不会拷贝数据
+        Input input = in.hasArray()
+                ? new Input(in.array(), in.arrayOffset() + in.readerIndex(), length)
+                : new ByteBufferInput(in.nioBuffer(in.readerIndex(), length));
+        Kryo kryo = kryoPool.borrow();
+        try {
+            return kryo.readObject(input, clazz);
         } catch (Exception e) {
             logger.error("反序列化时有错误发生:", e);
             throw new SerializeException("反序列化时有错误发生");
+        } finally {
+            kryoPool.release(kryo);
         }
     }
 
     @Override
     public int getCode() {
-        return SerializerCode.valueOf("KRYO").getCode();
+        return SerializerCode.KRYO.getCode();
+    }
+
+    /**
+     * 把ByteBuf可写区域的ByteBuffer视图交给Kryo直接写入，没有中转拷贝
+     * 空间不足时先把已写的字节计入写指针，再扩容ByteBuf并重新绑定视图，与Output向流中flush后继续写的方式相同
+     */
+    private static final class ByteBufOutput extends ByteBufferOutput {
+
+        private ByteBuf out;
+
+        private void attach(ByteBuf out) {
+            this.out = out;
+            out.ensureWritable(1);
+            bind();
+        }
+
+        /**
+         * 把已写入视图的字节计入ByteBuf的写指针
+         */
+        private void commit() {
+            out.writerIndex(out.writerIndex() + position);
+            position = 0;
+            niobuffer.position(0);
+        }
+
+        private void detach() {
+            out = null;
+            niobuffer = null;
+            position = 0;
+            capacity = 0;
+        }
+
+        private void bind() {
+            niobuffer = out.nioBuffer(out.writerIndex(), out.writableBytes());
+            niobuffer.order(order());
+            position = 0;
+            capacity = niobuffer.capacity();
+            maxCapacity = Integer.MAX_VALUE;
+        }
+
+        @Override
+        protected boolean require(int required) {
+            if (capacity - position >= required) {
+                return false;
+            }
+            commit();
+            out.ensureWritable(required);
+            if (out.nioBufferCount() != 1) {
+                throw new KryoException("出站缓冲区扩容后不再是连续内存");
+            }
+            bind();
+            return true;
+        }
+
     }
 }
@@ -1,11 +1,16 @@
 package panda.rpc.serializer;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufOutputStream;
+import io.protostuff.ByteBufferInput;
 import io.protostuff.LinkedBuffer;
 import io.protostuff.ProtostuffIOUtil;
 import io.protostuff.Schema;
 import io.protostuff.runtime.RuntimeSchema;
 import panda.rpc.enumeration.SerializerCode;
+import panda.rpc.exception.SerializeException;
 
+import java.io.IOException;
 import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.ConcurrentHashMap;
@@ -13,16 +18,22 @@ import java.util.concurrent.ConcurrentHashMap;
 /**
  * 使用ProtoBuf的序列化器
  */
-public class ProtobufSerializer implements CommonSerializer {
+public class ProtobufSerializer implements BufferSerializer {
 
-    private LinkedBuffer             buffer      = LinkedBuffer.allocate(LinkedBuffer.DEFAULT_BUFFER_SIZE);
-    private Map<Class<?>, Schema<?>> schemaCache = new ConcurrentHashMap<>();
+    /**
+     * LinkedBuffer不是线程安全的，每个线程持有一个并反复使用
+     */
+    private static final ThreadLocal<LinkedBuffer> bufferThreadLocal = ThreadLocal.withInitial(
+            () -> LinkedBuffer.allocate(LinkedBuffer.DEFAULT_BUFFER_SIZE));
+
+    private static final Map<Class<?>, Schema<?>> schemaCache = new ConcurrentHashMap<>();
 
     @Override
     @SuppressWarnings("unchecked")
     public byte[] serialize(Object obj) {
         Class clazz = obj.getClass();
         Schema schema = getSchema(clazz);
+        LinkedBuffer buffer = bufferThreadLocal.get();
         byte[] data;
         try {
             data = ProtostuffIOUtil.toByteArray(obj, schema, buffer);
@@ -32,6 +43,20 @@ public class ProtobufSerializer implements CommonSerializer {
         return data;
     }
 
+    @Override
+    @SuppressWarnings("unchecked")
+    public void serialize(Object obj, ByteBuf out) {
+        Schema schema = getSchema(obj.getClass());
+        LinkedBuffer buffer = bufferThreadLocal.get();
+        try {
+            ProtostuffIOUtil.writeTo(new ByteBufOutputStream(out), obj, schema, buffer);
+        } catch (IOException e) {
+            throw new SerializeException("序列化时有错误发生");
+        } finally {
+            buffer.clear();
+        }
+    }
+
     @Override
     @SuppressWarnings("unchecked")
     public Object deserialize(byte[] bytes, Class<?> clazz) {
@@ -41,9 +66,28 @@ public class ProtobufSerializer implements CommonSerializer {
         return obj;
     }
 
+    @Override
+    @SuppressWarnings("unchecked")
+    public Object deserialize(ByteBuf in, int length, Class<?> clazz) {
+        Schema schema = getSchema(clazz);
+        Object obj = schema.newMessage();
+        if (in.hasArray()) {
+            ProtostuffIOUtil.mergeFrom(in.array(), in.arrayOffset() + in.readerIndex(), length, obj, schema);
+            return obj;
+        }
+        try {
+            ByteBufferInput input = new ByteBufferInput(in.nioBuffer(in.readerIndex(), length), true);
+            schema.mergeFrom(input, obj);
+            input.checkLastTagWas(0);
+        } catch (IOException e) {
+            throw new SerializeException("反序列化时有错误发生");
+        }
+        return obj;
+    }
+
     @Override
     public int getCode() {
-        return SerializerCode.valueOf("PROTOBUF").getCode();
+        return SerializerCode.PROTOBUF.getCode();
     }
 
     @SuppressWarnings("unchecked")
@@ -0,0 +1,66 @@
+package panda.rpc.serializer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import panda.rpc.enumeration.RpcError;
+import panda.rpc.exception.RpcException;
+
+import java.util.ServiceLoader;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 序列化器注册表，按编号保存长期复用的序列化器实例，注册进来的序列化器必须是线程安全的
+ * 除内置的四种序列化器外，还会通过SPI加载
+ * META-INF/services/panda.rpc.serializer.CommonSerializer 中声明的自定义序列化器
+ */
+public class SerializerRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(SerializerRegistry.class);
+
+    /**
+     * v2帧头中序列化器编号只占一个字节
+     */
+    private static final int MAX_CODE = 0xFF;
+
+    private static final AtomicReferenceArray<CommonSerializer> serializers = new AtomicReferenceArray<>(MAX_CODE + 1);
+
+    static {
+        register(new KryoSerializer());
+        register(new JsonSerializer());
+        register(new HessianSerializer());
+        register(new ProtobufSerializer());
+        for (CommonSerializer serializer : ServiceLoader.load(CommonSerializer.class)) {
+            register(serializer);
+        }
+    }
+
+    private SerializerRegistry() {
+    }
+
+    /**
+     * 注册一个序列化器，编号相同时覆盖原有的序列化器
+     */
+    public static void register(CommonSerializer serializer) {
+        int code = serializer.getCode();
+        if (code < 0 || code > MAX_CODE) {
+            logger.error("序列化器编号超出范围: {}", code);
+            throw new RpcException(RpcError.UNKNOWN_SERIALIZER, String.valueOf(code));
+        }
+        CommonSerializer previous = serializers.getAndSet(code, serializer);
+        if (previous != null && previous.getClass() != serializer.getClass()) {
+            logger.info("序列化器 {} 覆盖了编号 {} 上原有的 {}", serializer.getClass().getName(), code,
+                    previous.getClass().getName());
+        }
+    }
+
+    /**
+     * @return 编号对应的序列化器，没有注册时返回null
+     */
+    public static CommonSerializer get(int code) {
+        if (code < 0 || code > MAX_CODE) {
+            return null;
+        }
+        return serializers.get(code);
+    }
+
+}
@@ -0,0 +1,49 @@
+package panda.rpc.trace;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import panda.rpc.entity.TraceSpan;
+
+import static panda.rpc.entity.TraceSpan.between;
+
+/**
+ * 没有注册其他TraceSink时使用，把每次采样调用的各阶段耗时输出到日志，单位微秒
+ */
+public class LoggingTraceSink implements TraceSink {
+
+    private static final Logger logger = LoggerFactory.getLogger(LoggingTraceSink.class);
+
+    @Override
+    public void onSpan(TraceSpan span) {
+        if (!logger.isInfoEnabled()) {
+            return;
+        }
+        if (span.isServer()) {
+            logger.info("trace {} server {}#{} total={} decode={} queue={} invoke={} reply={} encode={} error={}",
+                    Long.toHexString(span.getTraceId()), span.getInterfaceName(), span.getMethodName(),
+                    micros(span.getTotalNanos()), micros(span.getServerDecodeNanos()),
+                    micros(span.getServerQueueNanos()), micros(span.getServerInvokeNanos()),
+                    micros(span.getServerReplyNanos()),
+                    micros(between(span.getEncodeStartNanos(), span.getEncodeEndNanos())), span.getError());
+            return;
+        }
+        logger.info("trace {} client {}#{} total={} prepare={} connect={} eventLoop={} encode={} network={} "
+                        + "server(decode={} queue={} invoke={} reply={}) decode={} dispatch={} resume={} error={}",
+                Long.toHexString(span.getTraceId()), span.getInterfaceName(), span.getMethodName(),
+                micros(span.getTotalNanos()), micros(between(span.getStartNanos(), span.getSendNanos())),
+                micros(between(span.getSendNanos(), span.getWriteNanos())),
+                micros(between(span.getWriteNanos(), span.getEncodeStartNanos())),
+                micros(between(span.getEncodeStartNanos(), span.getEncodeEndNanos())),
+                micros(span.getNetworkNanos()), micros(span.getServerDecodeNanos()),
+                micros(span.getServerQueueNanos()), micros(span.getServerInvokeNanos()),
+                micros(span.getServerReplyNanos()),
+                micros(between(span.getDecodeStartNanos(), span.getDecodeEndNanos())),
+                micros(between(span.getDecodeEndNanos(), span.getCompleteNanos())),
+                micros(between(span.getCompleteNanos(), span.getEndNanos())), span.getError());
+    }
+
+    private static long micros(long nanos) {
+        return nanos / 1000;
+    }
+
+}
@@ -0,0 +1,15 @@
+package panda.rpc.trace;
+
+import panda.rpc.entity.TraceSpan;
+
+/**
+ * 接收已完成的采样记录，用于输出到日志或上报到外部的链路追踪系统
+ * 可以通过Tracer.addSink注册，也可以在
+ * META-INF/services/panda.rpc.trace.TraceSink 中声明，由SPI加载
+ * 客户端的记录在调用结束的线程上回调，服务端的记录在编码完响应的事件循环上回调，实现中不要有耗时操作
+ */
+public interface TraceSink {
+
+    void onSpan(TraceSpan span);
+
+}
@@ -0,0 +1,104 @@
+package panda.rpc.trace;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import panda.rpc.entity.RpcRequest;
+import panda.rpc.entity.TraceSpan;
+
+import java.util.List;
+import java.util.ServiceLoader;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 按比例采样调用，记录一次调用在客户端和服务端各阶段的时间点
+ * 客户端代理决定是否采样，采样的请求在v2帧头中带上标志和调用链标识，服务端据此记录并在响应帧头中回传各阶段耗时，
+ * 旧版(v1)协议不采样。采样率由 -Dsrpc.trace.sampleRate 指定，取值0到1，默认为0即关闭，
+ * 关闭时各记录点只多一次null判断；开启前需要先升级服务端，旧版服务端不识别带采样标志的帧
+ */
+public class Tracer {
+
+    private static final Logger logger = LoggerFactory.getLogger(Tracer.class);
+
+    private static final List<TraceSink> sinks = new CopyOnWriteArrayList<>();
+
+    private static final TraceSink DEFAULT_SINK = new LoggingTraceSink();
+
+    private static volatile double sampleRate = parseSampleRate(System.getProperty("srpc.trace.sampleRate", "0"));
+
+    static {
+        for (TraceSink sink : ServiceLoader.load(TraceSink.class)) {
+            sinks.add(sink);
+        }
+    }
+
+    private Tracer() {
+    }
+
+    /**
+     * 按采样率决定是否记录这次调用
+     *
+     * @return 采样时返回已记下开始时间的记录，否则返回null
+     */
+    public static TraceSpan start(RpcRequest request) {
+        double rate = sampleRate;
+        if (rate <= 0 || (rate < 1 && ThreadLocalRandom.current().nextDouble() >= rate)) {
+            return null;
+        }
+        long traceId;
+        do {
+            traceId = ThreadLocalRandom.current().nextLong();
+        } while (traceId == 0);
+        TraceSpan span = new TraceSpan(traceId, false);
+        span.setInterfaceName(request.getInterfaceName());
+        span.setMethodName(request.getMethodName());
+        span.setStartNanos(System.nanoTime());
+        return span;
+    }
+
+    /**
+     * 把已完成的记录交给所有TraceSink，没有注册时输出到日志
+     */
+    public static void finish(TraceSpan span) {
+        if (sinks.isEmpty()) {
+            DEFAULT_SINK.onSpan(span);
+            return;
+        }
+        for (TraceSink sink : sinks) {
+            try {
+                sink.onSpan(span);
+            } catch (Exception e) {
+                logger.warn("采样记录 {} 处理失败: {}", sink.getClass().getName(), e.getMessage());
+            }
+        }
+    }
+
+    public static double getSampleRate() {
+        return sampleRate;
+    }
+
+    /**
+     * 运行时调整采样率，对之后发出的调用生效
+     */
+    public static void setSampleRate(double rate) {
+        sampleRate = Math.min(Math.max(rate, 0), 1);
+    }
+
+    public static void addSink(TraceSink sink) {
+        sinks.add(sink);
+    }
+
+    public static void removeSink(TraceSink sink) {
+        sinks.remove(sink);
+    }
+
+    private static double parseSampleRate(String value) {
+        try {
+            return Math.min(Math.max(Double.parseDouble(value), 0), 1);
+        } catch (NumberFormatException e) {
+            logger.warn("采样率 {} 不合法，关闭采样", value);
+            return 0;
+        }
+    }
+
+}
@@ -0,0 +1,92 @@
+package panda.rpc.transport;
+
+import lombok.Getter;
+import panda.rpc.annotation.Compress;
+import panda.rpc.annotation.HashKey;
+import panda.rpc.annotation.Timeout;
+import panda.rpc.metrics.MethodMetrics;
+import panda.rpc.metrics.RpcMetrics;
+import panda.rpc.provider.MethodInvoker;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 客户端调用的接口方法元数据
+ * 第一次调用时解析并缓存，之后的调用不再重复读取注解和复制参数类型数组
+ */
+@Getter
+class MethodMetadata {
+
+    private static final Map<Method, MethodMetadata> cache = new ConcurrentHashMap<>();
+
+    private final String     interfaceName;
+    private final String     methodName;
+    private final Class<?>[] paramTypes;
+    private final String     signature;
+    private final int        compressType;
+    private final int        compressThreshold;
+    /**
+     * 注解声明的超时时间，单位毫秒，没有声明时为0
+     */
+    private final long       timeout;
+    /**
+     * 返回值为CompletableFuture或CompletionStage，调用时不阻塞等待响应
+     */
+    private final boolean    async;
+    /**
+     * 一致性哈希路由参数的下标，没有标注{@link HashKey}时取第一个参数，没有参数时为-1
+     */
+    private final int        hashKeyIndex;
+    /**
+     * 该方法的客户端调用统计，关闭指标时为null
+     */
+    private final MethodMetrics metrics;
+
+    private MethodMetadata(Method method) {
+        this.interfaceName = method.getDeclaringClass().getName();
+        this.methodName = method.getName();
+        this.paramTypes = method.getParameterTypes();
+        this.signature = MethodInvoker.signature(interfaceName, methodName, paramTypes);
+        Compress compress = method.getAnnotation(Compress.class);
+        if (compress == null) {
+            compress = method.getDeclaringClass().getAnnotation(Compress.class);
+        }
+        this.compressType = compress == null ? 0 : compress.value().getCode();
+        this.compressThreshold = compress == null ? 0 : Math.max(compress.threshold(), 0);
+        Timeout timeout = method.getAnnotation(Timeout.class);
+        if (timeout == null) {
+            timeout = method.getDeclaringClass().getAnnotation(Timeout.class);
+        }
+        this.timeout = timeout == null ? 0 : Math.max(timeout.value(), 0);
+        Class<?> returnType = method.getReturnType();
+        this.async = returnType == CompletableFuture.class || returnType == CompletionStage.class;
+        this.hashKeyIndex = hashKeyIndex(method);
+        this.metrics = RpcMetrics.getClientMethod(signature);
+    }
+
+    private static int hashKeyIndex(Method method) {
+        Annotation[][] annotations = method.getParameterAnnotations();
+        for (int i = 0; i < annotations.length; i++) {
+            for (Annotation annotation : annotations[i]) {
+                if (annotation instanceof HashKey) {
+                    return i;
+                }
+            }
+        }
+        return annotations.length > 0 ? 0 : -1;
+    }
+
+    static MethodMetadata of(Method method) {
+        MethodMetadata metadata = cache.get(method);
+        if (metadata == null) {
+            metadata = cache.computeIfAbsent(method, MethodMetadata::new);
+        }
+        return metadata;
+    }
+
+}
@@ -7,10 +7,23 @@ import panda.rpc.serializer.CommonSerializer;
 /**
  * 客户端类通用接口
  */
-public interface RpcClient {
+public interface RpcClient extends AutoCloseable {
 
     int DEFAULT_SERIALIZER = CommonSerializer.KRYO_SERIALIZER;
 
     Object sendRequest(RpcRequest rpcRequest);
 
+    /**
+     * 提前建立到提供该服务的所有实例的连接，不支持时什么也不做
+     */
+    default void prewarm(String serviceName) {
+    }
+
+    /**
+     * 释放客户端自己创建的服务发现等资源，连接池在进程内共用，不随客户端关闭
+     */
+    @Override
+    default void close() {
+    }
+
 }
@@ -2,25 +2,47 @@ package panda.rpc.transport;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import panda.rpc.codec.FrameCodec;
 import panda.rpc.entity.RpcRequest;
 import panda.rpc.entity.RpcResponse;
+import panda.rpc.entity.TraceSpan;
+import panda.rpc.exception.RpcException;
+import panda.rpc.metrics.MethodMetrics;
+import panda.rpc.stub.StubInvoker;
+import panda.rpc.trace.Tracer;
 import panda.rpc.transport.netty.client.NettyClient;
 import panda.rpc.transport.socket.client.SocketClient;
 import panda.rpc.util.RpcMessageChecker;
 
+import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
-import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
- * RPC客户端动态代理
+ * RPC客户端代理
+ * 接口有编译期生成的存根时直接使用存根，否则退回到JDK动态代理
  */
-public class RpcClientProxy implements InvocationHandler {
+public class RpcClientProxy implements InvocationHandler, StubInvoker {
 
     private static final Logger logger = LoggerFactory.getLogger(RpcClientProxy.class);
 
+    /**
+     * 没有通过RpcContext或@Timeout指定时的调用超时时间，单位毫秒
+     */
+    private static final long DEFAULT_TIMEOUT = Long.getLong("srpc.request.timeout", 10000L);
+
+    /**
+     * 为true时创建代理的同时预先连接提供该服务的所有实例
+     */
+    private static final boolean PREWARM = Boolean.getBoolean("srpc.client.prewarm");
+
+    private static final AtomicLong SEQUENCE = new AtomicLong();
+
     private final RpcClient client;
 
     public RpcClientProxy(RpcClient client) {
@@ -29,32 +51,165 @@ public class RpcClientProxy implements InvocationHandler {
 
     @SuppressWarnings("unchecked")
     public <T> T getProxy(Class<T> clazz) {
+        if (PREWARM) {
+            client.prewarm(clazz.getName());
+        }
+        Constructor<?> stubConstructor = findStub(clazz);
+        if (stubConstructor != null) {
+            try {
+                return (T) stubConstructor.newInstance(this);
+            } catch (ReflectiveOperationException e) {
+                logger.warn("创建客户端存根失败，使用动态代理: {}", clazz.getName(), e);
+            }
+        }
         return (T) Proxy.newProxyInstance(clazz.getClassLoader(), new Class<?>[] { clazz }, this);
     }
 
-    @SuppressWarnings("unchecked")
+    private static Constructor<?> findStub(Class<?> clazz) {
+        try {
+            Class<?> stubClass = Class.forName(clazz.getName() + STUB_SUFFIX, true, clazz.getClassLoader());
+            if (!clazz.isAssignableFrom(stubClass)) {
+                return null;
+            }
+            return stubClass.getConstructor(StubInvoker.class);
+        } catch (ClassNotFoundException | NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public Call bind(Method method) {
+        MethodMetadata metadata = MethodMetadata.of(method);
+        return args -> invoke(metadata, args);
+    }
+
     @Override
     public Object invoke(Object proxy, Method method, Object[] args) {
-        logger.info("调用方法: {}#{}", method.getDeclaringClass().getName(), method.getName());
-        RpcRequest rpcRequest = new RpcRequest(UUID.randomUUID().toString(), method.getDeclaringClass().getName(),
-                method.getName(), args, method.getParameterTypes(), false);
+        return invoke(MethodMetadata.of(method), args);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Object invoke(MethodMetadata metadata, Object[] args) {
+        if (logger.isDebugEnabled()) {
+            logger.debug("调用方法: {}#{}", metadata.getInterfaceName(), metadata.getMethodName());
+        }
+        RpcRequest rpcRequest = new RpcRequest();
+        rpcRequest.setInterfaceName(metadata.getInterfaceName());
+        rpcRequest.setMethodName(metadata.getMethodName());
+        rpcRequest.setParameters(args);
+        rpcRequest.setParamTypes(metadata.getParamTypes());
+        rpcRequest.setMethodSignature(metadata.getSignature());
+        rpcRequest.setHeartBeat(false);
+        rpcRequest.setCompressType(metadata.getCompressType());
+        rpcRequest.setCompressThreshold(metadata.getCompressThreshold());
+        if (metadata.getHashKeyIndex() >= 0) {
+            rpcRequest.setHashKey(args[metadata.getHashKeyIndex()]);
+        }
+        long timeout = RpcContext.consumeTimeout();
+        if (timeout <= 0) {
+            timeout = metadata.getTimeout() > 0 ? metadata.getTimeout() : DEFAULT_TIMEOUT;
+        }
+        rpcRequest.setTimeout(timeout);
+        long sequenceId = SEQUENCE.incrementAndGet();
+        rpcRequest.setSequenceId(sequenceId);
+        if (FrameCodec.LEGACY_PROTOCOL) {
+            //对接尚未升级的旧版服务端时，请求号需要放在消息体中，由服务端原样带回
+            rpcRequest.setRequestId(Long.toString(sequenceId));
+        }
+        //旧版协议的帧头中放不下采样标志
+        TraceSpan span = FrameCodec.LEGACY_PROTOCOL ? null : Tracer.start(rpcRequest);
+        rpcRequest.setTrace(span);
+        MethodMetrics metrics = metadata.getMetrics();
+        long startNanos = System.nanoTime();
+        if (metadata.isAsync()) {
+            CompletableFuture<Object> result = invokeAsync(rpcRequest);
+            if (metrics != null || span != null) {
+                result.whenComplete((data, e) -> record(metrics, span, startNanos, e));
+            }
+            return result;
+        }
         RpcResponse rpcResponse = null;
         if (client instanceof NettyClient) {
             try {
                 CompletableFuture<RpcResponse> completableFuture = (CompletableFuture<RpcResponse>) client.sendRequest(
                         rpcRequest);
                 rpcResponse = completableFuture.get();
+            } catch (ExecutionException e) {
+                record(metrics, span, startNanos, e.getCause());
+                if (e.getCause() instanceof RpcException) {
+                    //超时等框架异常直接抛给调用方
+                    throw (RpcException) e.getCause();
+                }
+                logger.error("方法调用请求发送失败", e);
+                return null;
             } catch (Exception e) {
+                record(metrics, span, startNanos, e);
                 logger.error("方法调用请求发送失败", e);
                 return null;
             }
         }
-        if (client instanceof SocketClient) {
-            rpcResponse = (RpcResponse) client.sendRequest(rpcRequest);
+        try {
+            if (client instanceof SocketClient) {
+                rpcResponse = (RpcResponse) client.sendRequest(rpcRequest);
+            }
+            if (span != null && rpcResponse != null) {
+                span.merge(rpcResponse.getTrace());
+            }
+            RpcMessageChecker.check(rpcRequest, rpcResponse);
+        } catch (RuntimeException e) {
+            record(metrics, span, startNanos, e);
+            throw e;
         }
-        RpcMessageChecker.check(rpcRequest, rpcResponse);
+        record(metrics, span, startNanos, null);
         return rpcResponse.getData();
     }
+
+    private static void record(MethodMetrics metrics, TraceSpan span, long startNanos, Throwable error) {
+        long endNanos = System.nanoTime();
+        if (metrics != null) {
+            metrics.record(endNanos - startNanos, error);
+        }
+        if (span != null) {
+            span.setEndNanos(endNanos);
+            if (error instanceof CompletionException && error.getCause() != null) {
+                error = error.getCause();
+            }
+            if (error != null) {
+                span.setError(error.getClass().getName());
+            }
+            Tracer.finish(span);
+        }
+    }
+
+    /**
+     * 返回值为CompletableFuture的方法直接返回映射到结果的传输层future，不占用调用线程
+     * 结果在IO线程或超时线程上完成，回调中有耗时操作时请使用thenApplyAsync等方法切换线程
+     */
+    @SuppressWarnings("unchecked")
+    private CompletableFuture<Object> invokeAsync(RpcRequest rpcRequest) {
+        CompletableFuture<RpcResponse> responseFuture;
+        try {
+            if (client instanceof NettyClient) {
+                responseFuture = (CompletableFuture<RpcResponse>) client.sendRequest(rpcRequest);
+            } else {
+                responseFuture = CompletableFuture.completedFuture((RpcResponse) client.sendRequest(rpcRequest));
+            }
+        } catch (RpcException e) {
+            CompletableFuture<Object> failed = new CompletableFuture<>();
+            failed.completeExceptionally(e);
+            return failed;
+        }
+        if (responseFuture == null) {
+            responseFuture = CompletableFuture.completedFuture(null);
+        }
+        return responseFuture.thenApply(rpcResponse -> {
+            if (rpcRequest.getTrace() != null && rpcResponse != null) {
+                rpcRequest.getTrace().merge(rpcResponse.getTrace());
+            }
+            RpcMessageChecker.check(rpcRequest, rpcResponse);
+            return rpcResponse.getData();
+        });
+    }
 }
 /*
 
@@ -0,0 +1,34 @@
+package panda.rpc.transport;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 当前线程的调用上下文，设置的值只对该线程发起的下一次调用生效
+ */
+public class RpcContext {
+
+    private static final ThreadLocal<RpcContext> contextThreadLocal = ThreadLocal.withInitial(RpcContext::new);
+
+    private long timeout;
+
+    private RpcContext() {
+    }
+
+    /**
+     * 覆盖下一次调用的超时时间，优先于@Timeout注解和客户端默认值
+     */
+    public static void setTimeout(long timeout, TimeUnit unit) {
+        contextThreadLocal.get().timeout = unit.toMillis(timeout);
+    }
+
+    /**
+     * 取出并清除本线程设置的超时时间，没有设置时返回0
+     */
+    static long consumeTimeout() {
+        RpcContext context = contextThreadLocal.get();
+        long timeout = context.timeout;
+        context.timeout = 0;
+        return timeout;
+    }
+
+}
@@ -0,0 +1,118 @@
+package panda.rpc.transport.netty;
+
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.util.AttributeKey;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import panda.rpc.entity.RpcRequest;
+import panda.rpc.entity.RpcResponse;
+import panda.rpc.enumeration.ResponseCode;
+import panda.rpc.factory.SingletonFactory;
+import panda.rpc.transport.netty.client.UnprocessedRequests;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 方法编号握手
+ * 客户端连上服务端后发送一个接口名为HANDSHAKE_SERVICE的请求，服务端返回方法签名到编号的映射，
+ * 客户端把它挂在Channel上。之后能查到编号的请求只在帧头中带编号，消息体中只有参数；
+ * 握手完成前或服务端没有下发的方法仍按接口名、方法名和参数类型调用
+ */
+public class MethodIdTable {
+
+    private static final Logger logger = LoggerFactory.getLogger(MethodIdTable.class);
+
+    public static final String HANDSHAKE_SERVICE = "panda.rpc.$MethodIdTable";
+
+    private static final long HANDSHAKE_TIMEOUT = 5000;
+
+    private static final AttributeKey<Map<String, Integer>> METHOD_IDS = AttributeKey.valueOf("srpc.methodIds");
+
+    /**
+     * 握手请求使用负数请求号，不会与普通请求冲突
+     */
+    private static final AtomicLong HANDSHAKE_SEQUENCE = new AtomicLong();
+
+    private MethodIdTable() {
+    }
+
+    /**
+     * 异步发起握手，失败时只记录日志，该连接继续使用字符串形式调用
+     */
+    public static void handshake(Channel channel) {
+        UnprocessedRequests unprocessedRequests = SingletonFactory.getInstance(UnprocessedRequests.class);
+        long sequenceId = -HANDSHAKE_SEQUENCE.incrementAndGet();
+        RpcRequest request = new RpcRequest();
+        request.setInterfaceName(HANDSHAKE_SERVICE);
+        request.setHeartBeat(false);
+        request.setSequenceId(sequenceId);
+        CompletableFuture<RpcResponse> future = new CompletableFuture<>();
+        unprocessedRequests.put(sequenceId, future, HANDSHAKE_TIMEOUT);
+        future.whenComplete((response, e) -> {
+            if (e != null) {
+                logger.warn("方法编号握手失败 [{}]: {}", channel.remoteAddress(), e.getMessage());
+            } else if (response.getStatusCode() == null
+                    || response.getStatusCode() != ResponseCode.SUCCESS.getCode()) {
+                logger.warn("服务端不支持方法编号握手 [{}]", channel.remoteAddress());
+            } else {
+                bind(channel, response.getData());
+            }
+        });
+        channel.writeAndFlush(request).addListener((ChannelFutureListener) f -> {
+            if (!f.isSuccess()) {
+                unprocessedRequests.remove(sequenceId);
+                logger.warn("发送方法编号握手请求失败 [{}]", channel.remoteAddress(), f.cause());
+            }
+        });
+    }
+
+    /**
+     * @return 方法签名在该连接上的编号，握手未完成或服务端没有该方法时返回0
+     */
+    public static int lookup(Channel channel, String signature) {
+        Map<String, Integer> methodIds = channel.attr(METHOD_IDS).get();
+        if (methodIds == null || signature == null) {
+            return 0;
+        }
+        Integer methodId = methodIds.get(signature);
+        return methodId == null ? 0 : methodId;
+    }
+
+    /**
+     * 构造只带方法编号和参数的请求，原请求保持不变
+     */
+    public static RpcRequest compact(RpcRequest request, int methodId) {
+        RpcRequest compact = new RpcRequest();
+        compact.setRequestId(request.getRequestId());
+        compact.setParameters(request.getParameters());
+        compact.setHeartBeat(false);
+        compact.setSequenceId(request.getSequenceId());
+        compact.setCompressType(request.getCompressType());
+        compact.setCompressThreshold(request.getCompressThreshold());
+        compact.setMethodId(methodId);
+        compact.setTrace(request.getTrace());
+        return compact;
+    }
+
+    private static void bind(Channel channel, Object data) {
+        if (!(data instanceof Map)) {
+            logger.warn("不识别的方法编号表: {}", data);
+            return;
+        }
+        Map<?, ?> table = (Map<?, ?>) data;
+        Map<String, Integer> methodIds = new HashMap<>(table.size() * 2);
+        for (Map.Entry<?, ?> entry : table.entrySet()) {
+            //不同序列化器还原出的数字类型可能不同
+            if (entry.getKey() != null && entry.getValue() instanceof Number) {
+                methodIds.put(entry.getKey().toString(), ((Number) entry.getValue()).intValue());
+            }
+        }
+        channel.attr(METHOD_IDS).set(methodIds);
+        logger.info("方法编号握手完成 [{}]，共 {} 个方法", channel.remoteAddress(), methodIds.size());
+    }
+
+}
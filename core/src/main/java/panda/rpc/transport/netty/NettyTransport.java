@@ -0,0 +1,180 @@
+package panda.rpc.transport.netty;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.ServerChannel;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollChannelOption;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollMode;
+import io.netty.channel.epoll.EpollServerSocketChannel;
+import io.netty.channel.epoll.EpollSocketChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Netty传输层的统一入口，服务端和客户端都从这里取得事件循环和Channel类型
+ * Linux上能加载epoll本地库时使用epoll，否则退回NIO，设置 -Dsrpc.transport.native=false 可以强制使用NIO
+ * 进程内的服务端和客户端共用一组IO事件循环，第一次使用时才创建，线程数由 srpc.transport.ioThreads 指定，
+ * 为0时使用Netty的默认值即CPU核数的两倍；接收连接的事件循环单独一组
+ *
+ * 以下配置只在使用epoll时生效：
+ * srpc.transport.reusePort 开启SO_REUSEPORT，服务端在同一端口上绑定 srpc.transport.acceptors 个监听Channel，
+ * 由内核把新连接分散到各个接收线程上；
+ * srpc.transport.quickAck 开启TCP_QUICKACK，收到数据后立即回复ACK，不等待延迟确认；
+ * srpc.transport.edgeTriggered 为false时改用水平触发，默认是边缘触发
+ */
+public final class NettyTransport {
+
+    private static final Logger logger = LoggerFactory.getLogger(NettyTransport.class);
+
+    public static final boolean EPOLL = Boolean.parseBoolean(System.getProperty("srpc.transport.native", "true"))
+            && Epoll.isAvailable();
+
+    private static final int     IO_THREADS     = Integer.getInteger("srpc.transport.ioThreads", 0);
+    private static final boolean REUSE_PORT     = Boolean.getBoolean("srpc.transport.reusePort");
+    private static final int     ACCEPTORS      = REUSE_PORT && EPOLL
+            ? Math.max(Integer.getInteger("srpc.transport.acceptors", 1), 1)
+            : 1;
+    private static final boolean QUICK_ACK      = Boolean.getBoolean("srpc.transport.quickAck");
+    private static final boolean EDGE_TRIGGERED = Boolean.parseBoolean(
+            System.getProperty("srpc.transport.edgeTriggered", "true"));
+
+    private static volatile EventLoopGroup bossGroup;
+    private static volatile EventLoopGroup ioGroup;
+
+    static {
+        if (EPOLL) {
+            logger.info("使用epoll传输，{}触发，SO_REUSEPORT: {}，TCP_QUICKACK: {}",
+                    EDGE_TRIGGERED ? "边缘" : "水平", REUSE_PORT, QUICK_ACK);
+        } else if (Boolean.parseBoolean(System.getProperty("srpc.transport.native", "true"))) {
+            logger.info("epoll不可用，使用NIO传输: {}", String.valueOf(Epoll.unavailabilityCause()));
+        }
+    }
+
+    private NettyTransport() {
+    }
+
+    /**
+     * @return 进程内共用的IO事件循环，服务端的连接和客户端的连接都在上面处理
+     */
+    public static EventLoopGroup ioGroup() {
+        if (ioGroup == null) {
+            synchronized (NettyTransport.class) {
+                if (ioGroup == null) {
+                    ioGroup = newEventLoopGroup(IO_THREADS, "srpc-io");
+                }
+            }
+        }
+        return ioGroup;
+    }
+
+    /**
+     * @return 服务端接收连接的事件循环，开启SO_REUSEPORT时每个监听Channel一个线程
+     */
+    public static EventLoopGroup bossGroup() {
+        if (bossGroup == null) {
+            synchronized (NettyTransport.class) {
+                if (bossGroup == null) {
+                    bossGroup = newEventLoopGroup(ACCEPTORS, "srpc-boss");
+                }
+            }
+        }
+        return bossGroup;
+    }
+
+    /**
+     * 按当前选择的传输方式创建一组独立的事件循环
+     *
+     * @param threads 为0时使用Netty的默认线程数
+     */
+    public static EventLoopGroup newEventLoopGroup(int threads, String name) {
+        ThreadFactory threadFactory = new DefaultThreadFactory(name);
+        return EPOLL ? new EpollEventLoopGroup(threads, threadFactory) : new NioEventLoopGroup(threads, threadFactory);
+    }
+
+    public static Class<? extends ServerChannel> serverChannelClass() {
+        return EPOLL ? EpollServerSocketChannel.class : NioServerSocketChannel.class;
+    }
+
+    public static Class<? extends SocketChannel> socketChannelClass() {
+        return EPOLL ? EpollSocketChannel.class : NioSocketChannel.class;
+    }
+
+    /**
+     * @return 使用共用事件循环、已设置好Channel类型和epoll选项的服务端启动器
+     */
+    public static ServerBootstrap serverBootstrap() {
+        ServerBootstrap bootstrap = new ServerBootstrap()
+                .group(bossGroup(), ioGroup())
+                .channel(serverChannelClass());
+        if (EPOLL) {
+            EpollMode mode = EDGE_TRIGGERED ? EpollMode.EDGE_TRIGGERED : EpollMode.LEVEL_TRIGGERED;
+            bootstrap.option(EpollChannelOption.EPOLL_MODE, mode)
+                    .childOption(EpollChannelOption.EPOLL_MODE, mode);
+            if (REUSE_PORT) {
+                bootstrap.option(EpollChannelOption.SO_REUSEPORT, true);
+            }
+            if (QUICK_ACK) {
+                bootstrap.childOption(EpollChannelOption.TCP_QUICKACK, true);
+            }
+        }
+        return bootstrap;
+    }
+
+    /**
+     * @return 使用共用事件循环、已设置好Channel类型和epoll选项的客户端启动器
+     */
+    public static Bootstrap bootstrap() {
+        Bootstrap bootstrap = new Bootstrap()
+                .group(ioGroup())
+                .channel(socketChannelClass());
+        if (EPOLL) {
+            bootstrap.option(EpollChannelOption.EPOLL_MODE,
+                    EDGE_TRIGGERED ? EpollMode.EDGE_TRIGGERED : EpollMode.LEVEL_TRIGGERED);
+            if (QUICK_ACK) {
+                bootstrap.option(EpollChannelOption.TCP_QUICKACK, true);
+            }
+        }
+        return bootstrap;
+    }
+
+    /**
+     * 绑定端口，开启SO_REUSEPORT时在同一端口上绑定多个监听Channel
+     *
+     * @return 所有监听Channel
+     */
+    public static List<Channel> bind(ServerBootstrap bootstrap, String host, int port) throws InterruptedException {
+        List<Channel> channels = new ArrayList<>(ACCEPTORS);
+        for (int i = 0; i < ACCEPTORS; i++) {
+            channels.add(bootstrap.bind(host, port).sync().channel());
+        }
+        return channels;
+    }
+
+    /**
+     * 关闭共用的事件循环，进程退出时调用
+     */
+    public static synchronized void shutdownGracefully() {
+        if (bossGroup != null) {
+            bossGroup.shutdownGracefully();
+            bossGroup = null;
+        }
+        if (ioGroup != null) {
+            ioGroup.shutdownGracefully();
+            ioGroup = null;
+        }
+    }
+
+}
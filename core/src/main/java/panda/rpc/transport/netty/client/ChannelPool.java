@@ -0,0 +1,281 @@
+package panda.rpc.transport.netty.client;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.util.AttributeKey;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import panda.rpc.codec.FrameCodec;
+import panda.rpc.transport.netty.MethodIdTable;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 到同一个服务端地址的一组连接
+ * 读取连接列表不加锁，增删连接时整体替换数组；每个连接记录未完成的请求数，
+ * 选择连接时取未完成请求最少的一个，或者按顺序轮询。
+ * 池为空时异步建立连接，并发的请求共用同一个建连future；
+ * 所有连接都积压到growThreshold个请求时异步新建连接，直到maxSize；
+ * 超过minSize的连接空闲idleMillis后摘除，等上面的请求都完成再关闭
+ */
+class ChannelPool {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChannelPool.class);
+
+    private static final AttributeKey<PooledChannel> POOLED = AttributeKey.valueOf("srpc.pooledChannel");
+
+    private static final PooledChannel[] EMPTY = new PooledChannel[0];
+
+    private final InetSocketAddress address;
+    private final Bootstrap         bootstrap;
+    private final int               minSize;
+    private final int               maxSize;
+    private final int               growThreshold;
+    private final long              idleNanos;
+    private final boolean           roundRobin;
+
+    private volatile PooledChannel[] channels = EMPTY;
+
+    /**
+     * 正在建立中的连接数，和已有连接数一起不超过maxSize
+     */
+    private final AtomicInteger connecting = new AtomicInteger();
+    private final AtomicInteger cursor     = new AtomicInteger();
+
+    /**
+     * 池为空时正在建立的连接，并发请求共用
+     */
+    private final AtomicReference<CompletableFuture<PooledChannel>> connectFuture = new AtomicReference<>();
+
+    ChannelPool(InetSocketAddress address, Bootstrap bootstrap, int minSize, int maxSize, int growThreshold,
+                long idleMillis, boolean roundRobin) {
+        this.address = address;
+        this.bootstrap = bootstrap;
+        this.minSize = Math.max(minSize, 1);
+        this.maxSize = Math.max(maxSize, this.minSize);
+        this.growThreshold = Math.max(growThreshold, 1);
+        this.idleNanos = idleMillis * 1_000_000L;
+        this.roundRobin = roundRobin;
+    }
+
+    /**
+     * 选出一个连接并把它的未完成请求数加一，请求结束后必须调用release
+     * 池中没有可用连接时异步建立，不阻塞调用线程
+     *
+     * @return 连接失败时异常完成
+     */
+    CompletableFuture<Channel> acquire() {
+        PooledChannel[] snapshot = channels;
+        while (snapshot.length > 0) {
+            PooledChannel selected = select(snapshot);
+            int pending = selected.pending.incrementAndGet();
+            if (!selected.retired && selected.channel.isActive()) {
+                if (pending > growThreshold) {
+                    grow();
+                }
+                return CompletableFuture.completedFuture(selected.channel);
+            }
+            //选中后连接恰好被摘除或断开，换一个
+            release(selected.channel);
+            remove(selected);
+            snapshot = channels;
+        }
+        return connect().thenApply(pooled -> {
+            pooled.pending.incrementAndGet();
+            return pooled.channel;
+        });
+    }
+
+    /**
+     * 提前建立连接并补足最小连接数，之后的请求不用再等待TCP建连
+     */
+    CompletableFuture<?> prewarm() {
+        PooledChannel[] snapshot = channels;
+        if (snapshot.length > 0) {
+            return CompletableFuture.completedFuture(snapshot[0]);
+        }
+        return connect();
+    }
+
+    /**
+     * 请求完成、超时或发送失败后调用，与acquire一一对应
+     */
+    static void release(Channel channel) {
+        PooledChannel pooled = channel.attr(POOLED).get();
+        if (pooled == null) {
+            return;
+        }
+        if (pooled.pending.decrementAndGet() == 0) {
+            pooled.idleSince = System.nanoTime();
+            if (pooled.retired) {
+                channel.close();
+            }
+        }
+    }
+
+    /**
+     * 摘除空闲超时的多余连接，由ChannelProvider定时调用
+     */
+    void shrink() {
+        PooledChannel[] snapshot = channels;
+        if (snapshot.length <= minSize) {
+            return;
+        }
+        long now = System.nanoTime();
+        for (PooledChannel pooled : snapshot) {
+            if (pooled.pending.get() == 0 && now - pooled.idleSince > idleNanos) {
+                if (!remove(pooled)) {
+                    continue;
+                }
+                pooled.retired = true;
+                //摘除后仍可能有线程拿到旧数组选中了它，有请求时由release关闭
+                if (pooled.pending.get() == 0) {
+                    pooled.channel.close();
+                }
+                logger.info("关闭空闲连接 [{}]，剩余 {} 个", address, channels.length);
+                //每次只摘除一个，避免负载回落后连接数骤降
+                return;
+            }
+        }
+    }
+
+    int size() {
+        return channels.length;
+    }
+
+    private PooledChannel select(PooledChannel[] snapshot) {
+        int start = (cursor.getAndIncrement() & Integer.MAX_VALUE) % snapshot.length;
+        if (roundRobin) {
+            return snapshot[start];
+        }
+        PooledChannel selected = snapshot[start];
+        int least = selected.pending.get();
+        for (int i = 1; i < snapshot.length && least > 0; i++) {
+            PooledChannel candidate = snapshot[(start + i) % snapshot.length];
+            int pending = candidate.pending.get();
+            if (pending < least) {
+                selected = candidate;
+                least = pending;
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * 池为空时建立连接，同一时刻只有一个连接在建立，并发的调用方共用同一个future
+     * 连接成功后先放进池中再清掉future，之后的调用方要么拿到这个future，要么能在池中看到连接
+     */
+    private CompletableFuture<PooledChannel> connect() {
+        CompletableFuture<PooledChannel> created;
+        while (true) {
+            CompletableFuture<PooledChannel> existing = connectFuture.get();
+            if (existing != null) {
+                return existing;
+            }
+            created = new CompletableFuture<>();
+            if (connectFuture.compareAndSet(null, created)) {
+                break;
+            }
+        }
+        PooledChannel[] snapshot = channels;
+        if (snapshot.length > 0) {
+            connectFuture.compareAndSet(created, null);
+            created.complete(snapshot[0]);
+            return created;
+        }
+        CompletableFuture<PooledChannel> result = created;
+        connecting.incrementAndGet();
+        bootstrap.connect(address).addListener((ChannelFutureListener) future -> {
+            connecting.decrementAndGet();
+            if (future.isSuccess()) {
+                logger.info("客户端连接成功 [{}]", address);
+                PooledChannel pooled = add(future.channel());
+                connectFuture.compareAndSet(result, null);
+                for (int i = 1; i < minSize; i++) {
+                    grow();
+                }
+                result.complete(pooled);
+            } else {
+                connectFuture.compareAndSet(result, null);
+                logger.error("连接服务端时有错误发生 [{}]: {}", address, future.cause().getMessage());
+                result.completeExceptionally(future.cause());
+            }
+        });
+        return created;
+    }
+
+    private void grow() {
+        while (true) {
+            int current = connecting.get();
+            if (channels.length + current >= maxSize) {
+                return;
+            }
+            if (connecting.compareAndSet(current, current + 1)) {
+                break;
+            }
+        }
+        bootstrap.connect(address).addListener((ChannelFutureListener) future -> {
+            try {
+                if (future.isSuccess()) {
+                    add(future.channel());
+                    logger.info("连接池扩容 [{}]，当前 {} 个连接", address, channels.length);
+                } else {
+                    logger.warn("连接池扩容失败 [{}]: {}", address, future.cause().getMessage());
+                }
+            } finally {
+                connecting.decrementAndGet();
+            }
+        });
+    }
+
+    private PooledChannel add(Channel channel) {
+        PooledChannel pooled = new PooledChannel(channel);
+        channel.attr(POOLED).set(pooled);
+        synchronized (this) {
+            PooledChannel[] snapshot = channels;
+            PooledChannel[] grown = new PooledChannel[snapshot.length + 1];
+            System.arraycopy(snapshot, 0, grown, 0, snapshot.length);
+            grown[snapshot.length] = pooled;
+            channels = grown;
+        }
+        channel.closeFuture().addListener((ChannelFuture future) -> remove(pooled));
+        if (!FrameCodec.LEGACY_PROTOCOL) {
+            MethodIdTable.handshake(channel);
+        }
+        return pooled;
+    }
+
+    private synchronized boolean remove(PooledChannel pooled) {
+        PooledChannel[] snapshot = channels;
+        for (int i = 0; i < snapshot.length; i++) {
+            if (snapshot[i] == pooled) {
+                PooledChannel[] shrunk = new PooledChannel[snapshot.length - 1];
+                System.arraycopy(snapshot, 0, shrunk, 0, i);
+                System.arraycopy(snapshot, i + 1, shrunk, i, snapshot.length - i - 1);
+                channels = shrunk;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static final class PooledChannel {
+
+        private final Channel       channel;
+        private final AtomicInteger pending = new AtomicInteger();
+
+        private volatile long    idleSince = System.nanoTime();
+        private volatile boolean retired;
+
+        private PooledChannel(Channel channel) {
+            this.channel = channel;
+        }
+
+    }
+
+}
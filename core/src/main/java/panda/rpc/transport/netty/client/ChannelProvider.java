@@ -2,88 +2,114 @@ package panda.rpc.transport.netty.client;
 
 import io.netty.bootstrap.Bootstrap;
 import io.netty.channel.*;
-import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.SocketChannel;
-import io.netty.channel.socket.nio.NioSocketChannel;
 import io.netty.handler.timeout.IdleStateHandler;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 import panda.rpc.codec.CommonDecoder;
 import panda.rpc.codec.CommonEncoder;
 import panda.rpc.serializer.CommonSerializer;
+import panda.rpc.transport.netty.NettyTransport;
 
 import java.net.InetSocketAddress;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 
 /**
- * 用于获取 Channel 对象
+ * 用于获取 Channel 对象，每个服务端地址和序列化器对应一个连接池
  */
 
 public class ChannelProvider {
 
-    private static final Logger         logger    = LoggerFactory.getLogger(ChannelProvider.class);
     private static       EventLoopGroup eventLoopGroup;
     private static       Bootstrap      bootstrap = initializeBootstrap();
 
-    private static Map<String, Channel> channels = new ConcurrentHashMap<>();
+    private static final Map<String, ChannelPool> pools = new ConcurrentHashMap<>();
+
+    /**
+     * 写合并的配置，关闭后每次writeAndFlush都立即flush
+     */
+    private static final boolean FLUSH_BATCHING     = Boolean.parseBoolean(
+            System.getProperty("srpc.flush.batching", "true"));
+    private static final int     FLUSH_MAX_MESSAGES = Integer.getInteger("srpc.flush.maxMessages", 64);
+    private static final int     FLUSH_MAX_BYTES    = Integer.getInteger("srpc.flush.maxBytes", 64 * 1024);
+    private static final long    FLUSH_MAX_DELAY    = Long.getLong("srpc.flush.maxDelayMicros", 0L);
+
+    /**
+     * 连接池的配置：每个地址的最少、最多连接数，
+     * 选中的连接积压多少个请求时扩容，多余的连接空闲多久后关闭，
+     * 以及选择连接的方式，leastPending为未完成请求最少，roundRobin为轮询
+     */
+    private static final int     POOL_MIN_SIZE       = Integer.getInteger("srpc.pool.minSize", 1);
+    private static final int     POOL_MAX_SIZE       = Integer.getInteger("srpc.pool.maxSize", 4);
+    private static final int     POOL_GROW_THRESHOLD = Integer.getInteger("srpc.pool.growThreshold", 32);
+    private static final long    POOL_IDLE_MILLIS    = Long.getLong("srpc.pool.idleMillis", 60000L);
+    private static final boolean POOL_ROUND_ROBIN    = "roundRobin".equalsIgnoreCase(
+            System.getProperty("srpc.pool.select", "leastPending"));
+
+    static {
+        long period = Math.max(POOL_IDLE_MILLIS / 2, 1000L);
+        eventLoopGroup.scheduleWithFixedDelay(() -> pools.values().forEach(ChannelPool::shrink),
+                period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 从到该地址的连接池中选出一个连接，返回的连接记一个未完成请求，
+     * 请求结束后必须调用{@link #release(Channel)}
+     * 还没有连接时异步建立，对同一地址的并发调用共用一次建连
+     *
+     * @return 连接失败时异常完成
+     */
+    public static CompletableFuture<Channel> acquire(InetSocketAddress inetSocketAddress,
+                                                     CommonSerializer serializer) {
+        return getPool(inetSocketAddress, serializer).acquire();
+    }
 
-    public static Channel get(InetSocketAddress inetSocketAddress, CommonSerializer serializer)
-            throws InterruptedException {
+    /**
+     * 提前建立到该地址的连接
+     */
+    public static CompletableFuture<?> prewarm(InetSocketAddress inetSocketAddress, CommonSerializer serializer) {
+        return getPool(inetSocketAddress, serializer).prewarm();
+    }
+
+    private static ChannelPool getPool(InetSocketAddress inetSocketAddress, CommonSerializer serializer) {
         String key = inetSocketAddress.toString() + serializer.getCode();
-        if (channels.containsKey(key)) {
-            Channel channel = channels.get(key);
-            if (channels != null && channel.isActive()) {
-                return channel;
-            } else {
-                channels.remove(key);
-            }
+        ChannelPool pool = pools.get(key);
+        if (pool == null) {
+            pool = pools.computeIfAbsent(key, k -> new ChannelPool(inetSocketAddress,
+                    bootstrap.clone().handler(channelInitializer(serializer)),
+                    POOL_MIN_SIZE, POOL_MAX_SIZE, POOL_GROW_THRESHOLD, POOL_IDLE_MILLIS, POOL_ROUND_ROBIN));
         }
-        bootstrap.handler(new ChannelInitializer<SocketChannel>() {
+        return pool;
+    }
+
+    public static void release(Channel channel) {
+        ChannelPool.release(channel);
+    }
+
+    private static ChannelInitializer<SocketChannel> channelInitializer(CommonSerializer serializer) {
+        return new ChannelInitializer<SocketChannel>() {
             @Override
             protected void initChannel(SocketChannel ch) {
                 /*自定义序列化编解码器*/
                 // RpcResponse -> ByteBuf
+                if (FLUSH_BATCHING) {
+                    ch.pipeline().addLast(new FlushBatchingHandler(FLUSH_MAX_MESSAGES, FLUSH_MAX_BYTES,
+                            FLUSH_MAX_DELAY));
+                }
                 ch.pipeline().addLast(new CommonEncoder(serializer))
                         .addLast(new IdleStateHandler(0, 5, 0, TimeUnit.SECONDS))
                         .addLast(new CommonDecoder())
                         .addLast(new NettyClientHandler());
             }
-        });
-        Channel channel = null;
-        try {
-            channel = connect(bootstrap, inetSocketAddress);
-        } catch (ExecutionException e) {
-            logger.error("连接客户端时有错误发生", e);
-            return null;
-        }
-        channels.put(key, channel);
-        logger.info("创造一个Channel" + channel.toString());
-        return channel;
-    }
-
-    private static Channel connect(Bootstrap bootstrap, InetSocketAddress inetSocketAddress)
-            throws ExecutionException, InterruptedException {
-        CompletableFuture<Channel> completableFuture = new CompletableFuture<>();
-        bootstrap.connect(inetSocketAddress).addListener((ChannelFutureListener) future -> {
-            if (future.isSuccess()) {
-                logger.info("客户端连接成功!");
-                completableFuture.complete(future.channel());
-            } else {
-                throw new IllegalStateException();
-            }
-        });
-        return completableFuture.get();
+        };
     }
 
     private static Bootstrap initializeBootstrap() {
-        eventLoopGroup = new NioEventLoopGroup();
-        Bootstrap bootstrap = new Bootstrap();
-        bootstrap.group(eventLoopGroup)
-                .channel(NioSocketChannel.class)
+        //与同进程的服务端共用事件循环，epoll可用时使用epoll
+        eventLoopGroup = NettyTransport.ioGroup();
+        Bootstrap bootstrap = NettyTransport.bootstrap();
+        bootstrap
                 //连接的超时时间，超过这个时间还是建立不上的话则代表连接失败
                 .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, 5000)
                 //是否开启 TCP 底层心跳机制
@@ -106,14 +132,13 @@ public class ChannelProvider {
 
 /*
 这段代码实现了一个ChannelProvider类，它是一个单例模式，用于提供与服务器建立连接的Netty Channel。
-该类维护了一个静态的Bootstrap实例，用于启动客户端连接，也维护了一个静态的Map用于缓存已连接的Channel，避免重复连接。
+该类维护了一个静态的Bootstrap实例，用于启动客户端连接，也维护了一个静态的Map用于缓存每个地址的连接池，避免重复连接。
 
-在get()方法中，首先会根据传入的inetSocketAddress和serializer生成一个唯一的key，用于在缓存Map中查找Channel。
-如果Map中已经有该Channel并且该Channel是可用的，直接返回这个Channel。
-否则，先将这个Channel从Map中移除，再重新连接服务器，建立新的Channel。
-最后，将新建的或者已存在的Channel保存到Map中，并返回该Channel。
+在acquire()方法中，首先会根据传入的inetSocketAddress和serializer生成一个唯一的key，用于在缓存Map中查找连接池。
+连接池从已有的连接中选出未完成请求最少的一个返回，池中没有可用连接时才重新连接服务器。
+连接都忙不过来时连接池会异步新建连接，多余的连接空闲一段时间后再关闭。
 Bootstrap是Netty中的一个重要组件，它用于配置Netty客户端或服务器的启动参数，并且可以创建和管理Channel。
 在该类中，通过initializeBootstrap()方法初始化了Bootstrap实例，包括线程模型、Channel类型、连接超时时间、心跳机制等。
-在connect()方法中，使用CompletableFuture异步方式建立客户端连接，并通过ChannelFutureListener回调函数处理连接结果。
-如果连接成功，将返回一个Channel实例，否则返回null。
+连接池使用CompletableFuture异步方式建立客户端连接，并通过ChannelFutureListener回调函数处理连接结果。
+如果连接成功，future完成时得到一个Channel实例，否则future异常完成；同一地址的并发请求共用同一次建连。
  */
\ No newline at end of file
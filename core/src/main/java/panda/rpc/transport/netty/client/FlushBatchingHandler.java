@@ -0,0 +1,120 @@
+package panda.rpc.transport.netty.client;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 客户端写合并处理器，放在编码器之后、紧挨着pipeline头部
+ * 多个线程共用一个Channel时，每次writeAndFlush都会触发一次write系统调用，
+ * 这里把flush推迟到事件循环处理完当前排队的任务之后（或等待不超过maxDelay微秒），
+ * 让同一批写入合并成一次系统调用和更大的TCP报文段
+ * 积压的消息数或字节数达到阈值、或Channel即将关闭时立即flush
+ * 注意不能按Channel是否可写来判断：其他线程提交的写任务在排队时就已计入待发送字节，
+ * 并发越高越容易不可写，恰恰是最需要合并的时候
+ */
+public class FlushBatchingHandler extends ChannelDuplexHandler {
+
+    private final int  maxMessages;
+    private final int  maxBytes;
+    private final long maxDelayMicros;
+
+    private final Runnable flushTask = this::runScheduledFlush;
+
+    private ChannelHandlerContext ctx;
+    private int                   pendingMessages;
+    private long                  pendingBytes;
+    private boolean               flushScheduled;
+
+    /**
+     * @param maxDelayMicros flush最多推迟的微秒数，不大于0时推迟到事件循环的下一轮
+     */
+    public FlushBatchingHandler(int maxMessages, int maxBytes, long maxDelayMicros) {
+        this.maxMessages = maxMessages;
+        this.maxBytes = maxBytes;
+        this.maxDelayMicros = maxDelayMicros;
+    }
+
+    /**
+     * 立即flush已经写入的消息，用于调用方明确知道一批请求已经发完的场景
+     */
+    public static void flushNow(Channel channel) {
+        FlushBatchingHandler handler = channel.pipeline().get(FlushBatchingHandler.class);
+        if (handler == null) {
+            channel.flush();
+        } else if (channel.eventLoop().inEventLoop()) {
+            handler.flushPending();
+        } else {
+            channel.eventLoop().execute(handler::flushPending);
+        }
+    }
+
+    @Override
+    public void handlerAdded(ChannelHandlerContext ctx) {
+        this.ctx = ctx;
+    }
+
+    @Override
+    public void handlerRemoved(ChannelHandlerContext ctx) {
+        flushPending();
+    }
+
+    @Override
+    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) {
+        pendingMessages++;
+        if (msg instanceof ByteBuf) {
+            pendingBytes += ((ByteBuf) msg).readableBytes();
+        }
+        ctx.write(msg, promise);
+    }
+
+    @Override
+    public void flush(ChannelHandlerContext ctx) {
+        if (pendingMessages == 0) {
+            return;
+        }
+        if (pendingMessages >= maxMessages || pendingBytes >= maxBytes) {
+            flushPending();
+            return;
+        }
+        if (!flushScheduled) {
+            flushScheduled = true;
+            if (maxDelayMicros > 0) {
+                ctx.channel().eventLoop().schedule(flushTask, maxDelayMicros, TimeUnit.MICROSECONDS);
+            } else {
+                ctx.channel().eventLoop().execute(flushTask);
+            }
+        }
+    }
+
+    @Override
+    public void disconnect(ChannelHandlerContext ctx, ChannelPromise promise) throws Exception {
+        flushPending();
+        ctx.disconnect(promise);
+    }
+
+    @Override
+    public void close(ChannelHandlerContext ctx, ChannelPromise promise) throws Exception {
+        flushPending();
+        ctx.close(promise);
+    }
+
+    private void runScheduledFlush() {
+        flushScheduled = false;
+        flushPending();
+    }
+
+    private void flushPending() {
+        if (pendingMessages == 0) {
+            return;
+        }
+        pendingMessages = 0;
+        pendingBytes = 0;
+        ctx.flush();
+    }
+
+}
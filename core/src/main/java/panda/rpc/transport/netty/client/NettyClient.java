@@ -1,11 +1,7 @@
 package panda.rpc.transport.netty.client;
 
-import io.netty.bootstrap.Bootstrap;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelFutureListener;
-import io.netty.channel.EventLoopGroup;
-import io.netty.channel.nio.NioEventLoopGroup;
-import io.netty.channel.socket.nio.NioSocketChannel;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import panda.rpc.entity.RpcRequest;
@@ -13,31 +9,25 @@ import panda.rpc.entity.RpcResponse;
 import panda.rpc.enumeration.RpcError;
 import panda.rpc.exception.RpcException;
 import panda.rpc.factory.SingletonFactory;
+import panda.rpc.loadbalancer.InstanceStats;
 import panda.rpc.loadbalancer.LoadBalancer;
 import panda.rpc.loadbalancer.RandomLoadBalancer;
-import panda.rpc.registry.NacosServiceDiscovery;
+import panda.rpc.registry.RegistryFactory;
 import panda.rpc.registry.ServiceDiscovery;
 import panda.rpc.serializer.CommonSerializer;
 import panda.rpc.transport.RpcClient;
+import panda.rpc.transport.netty.MethodIdTable;
 
 import java.net.InetSocketAddress;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
 
 /**
- * NIO方式消费侧客户端类
+ * Netty方式消费侧客户端类，连接由ChannelProvider管理
  */
 public class NettyClient implements RpcClient {
 
-    private static final Logger         logger = LoggerFactory.getLogger(NettyClient.class);
-    private static final EventLoopGroup group;
-    private static final Bootstrap      bootstrap;
-
-    static {
-        group = new NioEventLoopGroup();
-        bootstrap = new Bootstrap();
-        bootstrap.group(group)
-                .channel(NioSocketChannel.class);
-    }
+    private static final Logger logger = LoggerFactory.getLogger(NettyClient.class);
 
     private final ServiceDiscovery serviceDiscovery;
     private final CommonSerializer serializer;
@@ -59,44 +49,101 @@ public class NettyClient implements RpcClient {
 
     public NettyClient(Integer serializer, LoadBalancer loadBalancer) {
         //另一个构造方法，表示自定义负载均衡策略
+        this(serializer, RegistryFactory.createServiceDiscovery(loadBalancer));
+    }
 
+    public NettyClient(Integer serializer, ServiceDiscovery serviceDiscovery) {
         //注入服务发现
-        this.serviceDiscovery = new NacosServiceDiscovery(loadBalancer);
+        this.serviceDiscovery = serviceDiscovery;
         //序列化器
         this.serializer = CommonSerializer.getByCode(serializer);
         //单例工厂
         this.unprocessedRequests = SingletonFactory.getInstance(UnprocessedRequests.class);
     }
 
+    /**
+     * 异步连接提供该服务的所有实例，第一批请求不用再等待TCP建连
+     */
+    @Override
+    public void prewarm(String serviceName) {
+        if (serializer == null) {
+            return;
+        }
+        List<InetSocketAddress> addresses = serviceDiscovery.lookupAllServices(serviceName);
+        for (InetSocketAddress address : addresses) {
+            ChannelProvider.prewarm(address, serializer);
+        }
+        logger.info("预先连接服务 {} 的 {} 个实例", serviceName, addresses.size());
+    }
+
+    /**
+     * 关闭客户端使用的服务发现，取消其订阅和定时对账
+     */
+    @Override
+    public void close() {
+        serviceDiscovery.close();
+    }
+
+    private void write(Channel channel, RpcRequest rpcRequest, CompletableFuture<RpcResponse> resultFuture) {
+        if (rpcRequest.getTrace() != null) {
+            rpcRequest.getTrace().setWriteNanos(System.nanoTime());
+        }
+        //握手拿到方法编号后只发送编号和参数
+        Object message = rpcRequest;
+        if (serializer.isTypePreserving()) {
+            int methodId = MethodIdTable.lookup(channel, rpcRequest.getMethodSignature());
+            if (methodId != 0) {
+                message = MethodIdTable.compact(rpcRequest, methodId);
+            }
+        }
+        channel.writeAndFlush(message).addListener((ChannelFutureListener) future1 -> {
+            if (future1.isSuccess()) {
+                logger.debug("客户端发送消息: {}", rpcRequest);
+            } else {
+                future1.channel().close();
+                unprocessedRequests.remove(rpcRequest.getSequenceId());
+                resultFuture.completeExceptionally(future1.cause());
+                logger.error("发送消息时有错误发生: ", future1.cause());
+            }
+        });
+    }
+
     @Override
     public CompletableFuture<RpcResponse> sendRequest(RpcRequest rpcRequest) {
         if (serializer == null) {
             logger.error("未设置序列化器");
             throw new RpcException(RpcError.SERIALIZER_NOT_FOUND);
         }
+        if (rpcRequest.getTrace() != null) {
+            rpcRequest.getTrace().setSendNanos(System.nanoTime());
+        }
         CompletableFuture<RpcResponse> resultFuture = new CompletableFuture<>();
-        try {
-            InetSocketAddress inetSocketAddress = serviceDiscovery.lookupService(rpcRequest.getInterfaceName());
-            Channel channel = ChannelProvider.get(inetSocketAddress, serializer);
-            if (!channel.isActive()) {
-                group.shutdownGracefully();
-                return null;
-            }
-            unprocessedRequests.put(rpcRequest.getRequestId(), resultFuture);
-            channel.writeAndFlush(rpcRequest).addListener((ChannelFutureListener) future1 -> {
-                if (future1.isSuccess()) {
-                    logger.info(String.format("客户端发送消息: %s", rpcRequest.toString()));
-                } else {
-                    future1.channel().close();
-                    resultFuture.completeExceptionally(future1.cause());
-                    logger.error("发送消息时有错误发生: ", future1.cause());
-                }
-            });
-        } catch (InterruptedException e) {
-            unprocessedRequests.remove(rpcRequest.getRequestId());
-            logger.error(e.getMessage(), e);
-            Thread.currentThread().interrupt();
+        InetSocketAddress inetSocketAddress = serviceDiscovery.lookupService(rpcRequest);
+        if (inetSocketAddress == null) {
+            resultFuture.completeExceptionally(new RpcException(RpcError.FAILED_TO_CONNECT_TO_SERVICE_REGISTRY));
+            return resultFuture;
         }
+        //未完成请求数和响应时间供负载均衡器使用，超时和失败也计入
+        InstanceStats stats = InstanceStats.of(inetSocketAddress);
+        long startNanos = stats.start();
+        resultFuture.whenComplete((response, e) -> stats.finish(startNanos));
+        //先登记再建连，超时时间包含等待连接的时间
+        unprocessedRequests.put(rpcRequest.getSequenceId(), resultFuture, rpcRequest.getTimeout());
+        ChannelProvider.acquire(inetSocketAddress, serializer).whenComplete((channel, e) -> {
+            if (e != null) {
+                unprocessedRequests.remove(rpcRequest.getSequenceId());
+                resultFuture.completeExceptionally(new RpcException(RpcError.CLIENT_CONNECT_SERVER_FAILURE,
+                        inetSocketAddress.toString()));
+                return;
+            }
+            //响应、超时和发送失败都会完成future，此时归还连接上的未完成请求数
+            resultFuture.whenComplete((response, cause) -> ChannelProvider.release(channel));
+            if (resultFuture.isDone()) {
+                //等待连接时已经超时
+                return;
+            }
+            write(channel, rpcRequest, resultFuture);
+        });
         return resultFuture;
     }
 
@@ -1,6 +1,5 @@
 package panda.rpc.transport.netty.client;
 
-import io.netty.channel.Channel;
 import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.SimpleChannelInboundHandler;
@@ -12,9 +11,6 @@ import org.slf4j.LoggerFactory;
 import panda.rpc.entity.RpcRequest;
 import panda.rpc.entity.RpcResponse;
 import panda.rpc.factory.SingletonFactory;
-import panda.rpc.serializer.CommonSerializer;
-
-import java.net.InetSocketAddress;
 
 /**
  * Netty客户端侧处理器
@@ -32,7 +28,10 @@ public class NettyClientHandler extends SimpleChannelInboundHandler<RpcResponse>
     @Override
     protected void channelRead0(ChannelHandlerContext ctx, RpcResponse msg) throws Exception {
         try {
-            logger.info(String.format("客户端接收到消息: %s", msg));
+            logger.debug("客户端接收到消息: {}", msg);
+            if (msg.getTrace() != null) {
+                msg.getTrace().setCompleteNanos(System.nanoTime());
+            }
             unprocessedRequests.complete(msg);
         } finally {
             ReferenceCountUtil.release(msg);
@@ -52,11 +51,10 @@ public class NettyClientHandler extends SimpleChannelInboundHandler<RpcResponse>
             IdleState state = ((IdleStateEvent) evt).state();
             if (state == IdleState.WRITER_IDLE) {
                 logger.info("发送心跳包 [{}]", ctx.channel().remoteAddress());
-                Channel channel = ChannelProvider.get((InetSocketAddress) ctx.channel().remoteAddress(),
-                        CommonSerializer.getByCode(CommonSerializer.KRYO_SERIALIZER));
+                //连接池中每个连接各自空闲，心跳发在空闲的这个连接上
                 RpcRequest rpcRequest = new RpcRequest();
                 rpcRequest.setHeartBeat(true);
-                channel.writeAndFlush(rpcRequest).addListener(ChannelFutureListener.CLOSE_ON_FAILURE);
+                ctx.channel().writeAndFlush(rpcRequest).addListener(ChannelFutureListener.CLOSE_ON_FAILURE);
             }
         } else {
             super.userEventTriggered(ctx, evt);
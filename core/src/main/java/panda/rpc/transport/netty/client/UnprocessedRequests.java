@@ -1,30 +1,223 @@
 package panda.rpc.transport.netty.client;
 
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timeout;
+import io.netty.util.Timer;
+import io.netty.util.TimerTask;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import panda.rpc.entity.RpcResponse;
+import panda.rpc.enumeration.RpcError;
+import panda.rpc.exception.RpcException;
 
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ConcurrentHashMap;
-
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 等待响应的请求表，以数字请求号为键
+ * 请求号由调用方单调递增生成，按低位分到多个分段，相邻请求落在不同分段上，互不竞争同一把锁
+ * 每个分段是一张以long为键的开放寻址哈希表，存取时不装箱，也不产生链表节点
+ * 连接在所有客户端之间共享，因此整张表也是进程级的
+ * 每个请求在共享的时间轮上登记截止时间，超时后从表中移除并以异常结束，之后到达的响应直接丢弃
+ */
 public class UnprocessedRequests {
 
-    private static ConcurrentHashMap<String, CompletableFuture<RpcResponse>> unprocessedResponseFutures = new ConcurrentHashMap<>();
+    private static final Logger logger = LoggerFactory.getLogger(UnprocessedRequests.class);
+
+    /**
+     * 时间轮精度10毫秒，超时判定允许这个量级的误差
+     */
+    private static final Timer timer = new HashedWheelTimer(
+            new DefaultThreadFactory("srpc-request-timeout", true), 10, TimeUnit.MILLISECONDS, 512);
+
+    private static final LongAdder timeoutCount      = new LongAdder();
+    private static final LongAdder lateResponseCount = new LongAdder();
+
+    private static final Segment[] segments;
+    private static final int       segmentMask;
+
+    static {
+        int count = Integer.highestOneBit(Math.max(Runtime.getRuntime().availableProcessors() * 2 - 1, 1)) << 1;
+        segments = new Segment[count];
+        for (int i = 0; i < count; i++) {
+            segments[i] = new Segment();
+        }
+        segmentMask = count - 1;
+    }
 
-    public void put(String requestId, CompletableFuture<RpcResponse> future) {
-        unprocessedResponseFutures.put(requestId, future);
+    /**
+     * @param timeout 超时时间，单位毫秒，不大于0时不设截止时间
+     */
+    public void put(long sequenceId, CompletableFuture<RpcResponse> future, long timeout) {
+        PendingRequest request = new PendingRequest(sequenceId, future);
+        segmentFor(sequenceId).put(sequenceId, request);
+        if (timeout > 0) {
+            request.timeout = timer.newTimeout(request, timeout, TimeUnit.MILLISECONDS);
+        }
     }
 
-    public void remove(String requestId) {
-        unprocessedResponseFutures.remove(requestId);
+    public void remove(long sequenceId) {
+        PendingRequest request = segmentFor(sequenceId).remove(sequenceId);
+        if (request != null) {
+            request.cancelTimeout();
+        }
     }
 
     public void complete(RpcResponse rpcResponse) {
-        CompletableFuture<RpcResponse> future = unprocessedResponseFutures.remove(rpcResponse.getRequestId());
-        if (null != future) {
-            future.complete(rpcResponse);
-        } else {
-            throw new IllegalStateException();
+        PendingRequest request = segmentFor(rpcResponse.getSequenceId()).remove(rpcResponse.getSequenceId());
+        if (request == null) {
+            //请求已经超时，调用方不再等待这个响应
+            lateResponseCount.increment();
+            logger.debug("丢弃超时后到达的响应: {}", rpcResponse.getSequenceId());
+            return;
         }
+        request.cancelTimeout();
+        request.future.complete(rpcResponse);
+    }
+
+    /**
+     * @return 累计超时的请求数
+     */
+    public long getTimeoutCount() {
+        return timeoutCount.sum();
+    }
+
+    /**
+     * @return 累计在超时后才到达而被丢弃的响应数
+     */
+    public long getLateResponseCount() {
+        return lateResponseCount.sum();
+    }
+
+    static Segment segmentFor(long sequenceId) {
+        return segments[(int) sequenceId & segmentMask];
     }
+
+    private static final class PendingRequest implements TimerTask {
+
+        private final long                           sequenceId;
+        private final CompletableFuture<RpcResponse> future;
+        private volatile Timeout                     timeout;
+
+        PendingRequest(long sequenceId, CompletableFuture<RpcResponse> future) {
+            this.sequenceId = sequenceId;
+            this.future = future;
+        }
+
+        @Override
+        public void run(Timeout timeout) {
+            //响应先到时表中已经没有这个请求，什么也不做
+            if (segmentFor(sequenceId).remove(sequenceId) == null) {
+                return;
+            }
+            timeoutCount.increment();
+            future.completeExceptionally(new RpcException(RpcError.REQUEST_TIMEOUT, String.valueOf(sequenceId)));
+        }
+
+        void cancelTimeout() {
+            Timeout timeout = this.timeout;
+            if (timeout != null) {
+                timeout.cancel();
+            }
+        }
+
+    }
+
+    /**
+     * 线性探测的long到未完成请求的哈希表，删除时回移后续元素，不留墓碑
+     */
+    static final class Segment {
+
+        private static final int INITIAL_CAPACITY = 64;
+
+        private long[]           keys   = new long[INITIAL_CAPACITY];
+        private PendingRequest[] values = new PendingRequest[INITIAL_CAPACITY];
+        private int              size;
+
+        synchronized void put(long key, PendingRequest value) {
+            if ((size + 1) * 2 > keys.length) {
+                resize(keys.length * 2);
+            }
+            int mask = keys.length - 1;
+            int i = index(key, mask);
+            while (values[i] != null) {
+                if (keys[i] == key) {
+                    values[i] = value;
+                    return;
+                }
+                i = (i + 1) & mask;
+            }
+            keys[i] = key;
+            values[i] = value;
+            size++;
+        }
+
+        synchronized PendingRequest remove(long key) {
+            int mask = keys.length - 1;
+            int i = index(key, mask);
+            while (values[i] != null) {
+                if (keys[i] == key) {
+                    PendingRequest value = values[i];
+                    shiftBack(i, mask);
+                    size--;
+                    return value;
+                }
+                i = (i + 1) & mask;
+            }
+            return null;
+        }
+
+        /**
+         * 把空出的槽位之后、原本应落在它之前的元素前移，保证查找时探测链不断
+         */
+        private void shiftBack(int hole, int mask) {
+            int i = hole;
+            while (true) {
+                i = (i + 1) & mask;
+                if (values[i] == null) {
+                    break;
+                }
+                int home = index(keys[i], mask);
+                //home在(hole, i]之间循环区间内的元素不能前移
+                if (hole <= i ? (hole < home && home <= i) : (hole < home || home <= i)) {
+                    continue;
+                }
+                keys[hole] = keys[i];
+                values[hole] = values[i];
+                hole = i;
+            }
+            keys[hole] = 0;
+            values[hole] = null;
+        }
+
+        private void resize(int capacity) {
+            long[] oldKeys = keys;
+            PendingRequest[] oldValues = values;
+            keys = new long[capacity];
+            values = new PendingRequest[capacity];
+            int mask = capacity - 1;
+            for (int j = 0; j < oldKeys.length; j++) {
+                if (oldValues[j] != null) {
+                    int i = index(oldKeys[j], mask);
+                    while (values[i] != null) {
+                        i = (i + 1) & mask;
+                    }
+                    keys[i] = oldKeys[j];
+                    values[i] = oldValues[j];
+                }
+            }
+        }
+
+        static int index(long key, int mask) {
+            //同一分段内的请求号低位相同，乘以黄金分割常数后取高位打散
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h >>> 40) & mask;
+        }
+
+    }
+
 }
 
 
@@ -42,16 +235,17 @@ public class UnprocessedRequests {
 
 
 
+
     /*
     这个类名为 UnprocessedRequests，用于处理未处理的RPC请求。
 
-在这个类中，使用了一个静态的 ConcurrentHashMap 对象，用于存储未处理的RPC请求。
+在这个类中，使用了静态的分段哈希表，用于存储未处理的RPC请求。
 其中，Key 值为请求的ID，Value 值为一个 CompletableFuture<RpcResponse> 对象，用于异步获取 RPC 响应结果。
 
 类中的 put 方法用于将未处理的请求放入 unprocessedResponseFutures 中。
 remove 方法用于移除 unprocessedResponseFutures 中的请求
 ，而 complete 方法用于标记RPC响应已完成，并将结果设置到对应的 CompletableFuture 中。
-如果找不到对应的请求，将会抛出 IllegalStateException 异常。
+如果找不到对应的请求，说明请求已经超时，响应会被直接丢弃。
 
 因此，这个类提供了一个便捷的方式来跟踪和处理未处理的RPC请求和响应。
 
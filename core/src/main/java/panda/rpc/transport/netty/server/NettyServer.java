@@ -2,9 +2,7 @@ package panda.rpc.transport.netty.server;
 
 import io.netty.bootstrap.ServerBootstrap;
 import io.netty.channel.*;
-import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.SocketChannel;
-import io.netty.channel.socket.nio.NioServerSocketChannel;
 import io.netty.handler.logging.LogLevel;
 import io.netty.handler.logging.LoggingHandler;
 import io.netty.handler.timeout.IdleStateHandler;
@@ -12,14 +10,17 @@ import panda.rpc.codec.CommonDecoder;
 import panda.rpc.codec.CommonEncoder;
 import panda.rpc.hook.ShutdownHook;
 import panda.rpc.provider.ServiceProviderImpl;
-import panda.rpc.registry.NacosServiceRegistry;
+import panda.rpc.registry.RegistryFactory;
+import panda.rpc.registry.ServiceRegistry;
 import panda.rpc.serializer.CommonSerializer;
 import panda.rpc.transport.AbstractRpcServer;
+import panda.rpc.transport.netty.NettyTransport;
 
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 /**
- * NIO方式服务提供侧
+ * Netty方式服务提供侧，事件循环和Channel类型由{@link NettyTransport}统一选择
  */
 public class NettyServer extends AbstractRpcServer {
     //同时也继承了serviceRegistry和serviceProvider
@@ -31,9 +32,13 @@ public class NettyServer extends AbstractRpcServer {
     }
 
     public NettyServer(String host, int port, Integer serializer) {
+        this(host, port, serializer, RegistryFactory.createServiceRegistry());
+    }
+
+    public NettyServer(String host, int port, Integer serializer, ServiceRegistry serviceRegistry) {
         this.host = host;
         this.port = port;
-        serviceRegistry = new NacosServiceRegistry();
+        this.serviceRegistry = serviceRegistry;
         serviceProvider = new ServiceProviderImpl();
         this.serializer = CommonSerializer.getByCode(serializer);
         scanServices();
@@ -42,15 +47,11 @@ public class NettyServer extends AbstractRpcServer {
     @Override
     public void start() {
         //使用静态方法代替构造方法
-        ShutdownHook.getShutdownHook().addClearAllHook();
-        EventLoopGroup bossGroup = new NioEventLoopGroup();
-        EventLoopGroup workerGroup = new NioEventLoopGroup();
+        ShutdownHook.getShutdownHook().addClearAllHook(serviceRegistry);
         try {
-            //固定写法
-            ServerBootstrap serverBootstrap = new ServerBootstrap();
-            serverBootstrap.group(bossGroup, workerGroup)
-                    .channel(NioServerSocketChannel.class)
-                    .handler(new LoggingHandler(LogLevel.INFO))
+            //事件循环与同进程的客户端共用，在进程退出时关闭
+            ServerBootstrap serverBootstrap = NettyTransport.serverBootstrap();
+            serverBootstrap.handler(new LoggingHandler(LogLevel.INFO))
                     .option(ChannelOption.SO_BACKLOG, 256)
                     .option(ChannelOption.SO_KEEPALIVE, true)
                     .childOption(ChannelOption.TCP_NODELAY, true)
@@ -64,14 +65,12 @@ public class NettyServer extends AbstractRpcServer {
                                     .addLast(new NettyServerHandler());
                         }
                     });
-            ChannelFuture future = serverBootstrap.bind(host, port).sync();
-            future.channel().closeFuture().sync();
-
+            List<Channel> channels = NettyTransport.bind(serverBootstrap, host, port);
+            for (Channel channel : channels) {
+                channel.closeFuture().sync();
+            }
         } catch (InterruptedException e) {
             logger.error("启动服务器时有错误发生: ", e);
-        } finally {
-            bossGroup.shutdownGracefully();
-            workerGroup.shutdownGracefully();
         }
     }
 
@@ -8,20 +8,18 @@ import io.netty.util.ReferenceCountUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import panda.rpc.entity.RpcRequest;
-import panda.rpc.entity.RpcResponse;
 import panda.rpc.factory.SingletonFactory;
-import panda.rpc.handler.RequestHandler;
 
 /**
  * Netty中处理RpcRequest的Handler
  */
 public class NettyServerHandler extends SimpleChannelInboundHandler<RpcRequest> {
 
-    private static final Logger         logger = LoggerFactory.getLogger(NettyServerHandler.class);
-    private final        RequestHandler requestHandler;
+    private static final Logger            logger = LoggerFactory.getLogger(NettyServerHandler.class);
+    private final        RequestDispatcher requestDispatcher;
 
     public NettyServerHandler() {
-        this.requestHandler = SingletonFactory.getInstance(RequestHandler.class);
+        this.requestDispatcher = SingletonFactory.getInstance(RequestDispatcher.class);
     }
 
     @Override
@@ -31,13 +29,11 @@ public class NettyServerHandler extends SimpleChannelInboundHandler<RpcRequest>
                 logger.info("接收到客户端心跳包...");
                 return;
             }
-            logger.info("服务器接收到请求: {}", msg);
-            Object result = requestHandler.handle(msg);
-            if (ctx.channel().isActive() && ctx.channel().isWritable()) {
-                ctx.writeAndFlush(RpcResponse.success(result, msg.getRequestId()));
-            } else {
-                logger.error("通道不可写");
+            logger.debug("服务器接收到请求: {}", msg);
+            if (msg.getTrace() != null) {
+                msg.getTrace().setHandlerNanos(System.nanoTime());
             }
+            requestDispatcher.dispatch(ctx, msg);
         } finally {
             ReferenceCountUtil.release(msg);
         }
@@ -0,0 +1,131 @@
+package panda.rpc.transport.netty.server;
+
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import panda.rpc.entity.RpcRequest;
+import panda.rpc.entity.RpcResponse;
+import panda.rpc.enumeration.DispatchStrategy;
+import panda.rpc.enumeration.ResponseCode;
+import panda.rpc.factory.SingletonFactory;
+import panda.rpc.factory.ThreadPoolFactory;
+import panda.rpc.handler.RequestHandler;
+import panda.rpc.transport.netty.MethodIdTable;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * 按服务声明的DispatchStrategy选择执行服务方法的线程，避免慢方法阻塞同一IO线程上的其他连接
+ * 无论在哪个线程执行，响应都回到Channel所属的事件循环上写出
+ * 服务方法返回CompletableFuture时，在其完成时写回响应
+ */
+public class RequestDispatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(RequestDispatcher.class);
+
+    private static final String BUSINESS_POOL_NAME = "netty-rpc-business";
+
+    private static final ExecutorService virtualThreadExecutor = createVirtualThreadExecutor();
+
+    private final RequestHandler requestHandler;
+
+    public RequestDispatcher() {
+        this.requestHandler = SingletonFactory.getInstance(RequestHandler.class);
+    }
+
+    public void dispatch(ChannelHandlerContext ctx, RpcRequest request) {
+        if (MethodIdTable.HANDSHAKE_SERVICE.equals(request.getInterfaceName())) {
+            writeResponse(ctx, RpcResponse.success(requestHandler.getMethodIds(), request));
+            return;
+        }
+        if (request.getMethodId() != 0 && !requestHandler.resolveMethodId(request)) {
+            logger.error("不识别的方法编号: {}", request.getMethodId());
+            writeResponse(ctx, RpcResponse.fail(ResponseCode.METHOD_NOT_FOUND, request));
+            return;
+        }
+        if (!ctx.channel().isWritable()) {
+            //出站缓冲区积压超过高水位时不再接收新请求，避免响应无限堆积
+            logger.warn("连接出站缓冲区已满，拒绝请求: {}#{}", request.getInterfaceName(), request.getMethodName());
+            writeResponse(ctx, RpcResponse.fail(ResponseCode.SERVER_BUSY, request));
+            return;
+        }
+        DispatchStrategy strategy = requestHandler.getDispatchStrategy(request);
+        if (strategy == DispatchStrategy.INLINE) {
+            invoke(ctx, request);
+            return;
+        }
+        ExecutorService executor = virtualThreadExecutor;
+        if (strategy == DispatchStrategy.POOL || executor == null) {
+            executor = ThreadPoolFactory.createDefaultThreadPool(BUSINESS_POOL_NAME);
+        }
+        try {
+            executor.execute(() -> invoke(ctx, request));
+        } catch (RejectedExecutionException e) {
+            logger.warn("业务线程池已满，拒绝请求: {}#{}", request.getInterfaceName(), request.getMethodName());
+            writeResponse(ctx, RpcResponse.fail(ResponseCode.SERVER_BUSY, request));
+        }
+    }
+
+    private void invoke(ChannelHandlerContext ctx, RpcRequest request) {
+        RpcResponse<?> response;
+        try {
+            Object result = requestHandler.handle(request);
+            if (result instanceof CompletionStage) {
+                //异步方法不占用线程等待结果，完成时再写回响应
+                ((CompletionStage<?>) result).whenComplete((data, e) -> {
+                    if (e != null) {
+                        logger.error("服务:{} 异步方法:{} 执行失败", request.getInterfaceName(), request.getMethodName(), e);
+                        writeResponse(ctx, RpcResponse.fail(ResponseCode.FAIL, request));
+                    } else {
+                        writeResponse(ctx, RpcResponse.success(data, request));
+                    }
+                });
+                return;
+            }
+            response = result instanceof RpcResponse
+                    ? (RpcResponse<?>) result
+                    : RpcResponse.success(result, request);
+        } catch (Exception e) {
+            logger.error("处理请求时有错误发生: ", e);
+            response = RpcResponse.fail(ResponseCode.FAIL, request);
+        }
+        writeResponse(ctx, response);
+    }
+
+    private static void writeResponse(ChannelHandlerContext ctx, RpcResponse<?> response) {
+        if (ctx.executor().inEventLoop()) {
+            doWriteResponse(ctx, response);
+        } else {
+            ctx.executor().execute(() -> doWriteResponse(ctx, response));
+        }
+    }
+
+    /**
+     * 已经算出的响应总是写出，通道暂时不可写时由Netty放进出站缓冲区排队，不能丢弃，否则客户端只能等到超时
+     */
+    private static void doWriteResponse(ChannelHandlerContext ctx, RpcResponse<?> response) {
+        ctx.writeAndFlush(response).addListener((ChannelFutureListener) future -> {
+            if (!future.isSuccess()) {
+                logger.error("写回响应失败, sequenceId: {}", response.getSequenceId(), future.cause());
+            }
+        });
+    }
+
+    /**
+     * 通过反射创建虚拟线程执行器，这样在JDK 8上也能编译和运行
+     */
+    private static ExecutorService createVirtualThreadExecutor() {
+        try {
+            Method method = java.util.concurrent.Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) method.invoke(null);
+        } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+            logger.info("当前运行时不支持虚拟线程，VIRTUAL_THREAD策略将使用业务线程池");
+            return null;
+        }
+    }
+
+}
@@ -7,9 +7,10 @@ import panda.rpc.entity.RpcResponse;
 import panda.rpc.enumeration.ResponseCode;
 import panda.rpc.enumeration.RpcError;
 import panda.rpc.exception.RpcException;
+import panda.rpc.loadbalancer.InstanceStats;
 import panda.rpc.loadbalancer.LoadBalancer;
 import panda.rpc.loadbalancer.RandomLoadBalancer;
-import panda.rpc.registry.NacosServiceDiscovery;
+import panda.rpc.registry.RegistryFactory;
 import panda.rpc.registry.ServiceDiscovery;
 import panda.rpc.serializer.CommonSerializer;
 import panda.rpc.transport.RpcClient;
@@ -23,6 +24,7 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.InetSocketAddress;
 import java.net.Socket;
+import java.net.SocketTimeoutException;
 
 /**
  * Socket方式远程方法调用的消费者（客户端）
@@ -46,19 +48,37 @@ public class SocketClient implements RpcClient {
     }
 
     public SocketClient(Integer serializer, LoadBalancer loadBalancer) {
-        this.serviceDiscovery = new NacosServiceDiscovery(loadBalancer);
+        this(serializer, RegistryFactory.createServiceDiscovery(loadBalancer));
+    }
+
+    public SocketClient(Integer serializer, ServiceDiscovery serviceDiscovery) {
+        this.serviceDiscovery = serviceDiscovery;
         this.serializer = CommonSerializer.getByCode(serializer);
     }
 
+    /**
+     * 关闭客户端使用的服务发现，取消其订阅和定时对账
+     */
+    @Override
+    public void close() {
+        serviceDiscovery.close();
+    }
+
     @Override
     public Object sendRequest(RpcRequest rpcRequest) {
         if(serializer == null) {
             logger.error("未设置序列化器");
             throw new RpcException(RpcError.SERIALIZER_NOT_FOUND);
         }
-        InetSocketAddress inetSocketAddress = serviceDiscovery.lookupService(rpcRequest.getInterfaceName());
+        InetSocketAddress inetSocketAddress = serviceDiscovery.lookupService(rpcRequest);
+        //与NettyClient一样统计每个实例的未完成请求数和响应时间
+        InstanceStats stats = InstanceStats.of(inetSocketAddress);
+        long startNanos = stats.start();
         try (Socket socket = new Socket()) {
             socket.connect(inetSocketAddress);
+            if (rpcRequest.getTimeout() > 0) {
+                socket.setSoTimeout((int) Math.min(rpcRequest.getTimeout(), Integer.MAX_VALUE));
+            }
             OutputStream outputStream = socket.getOutputStream();
             InputStream inputStream = socket.getInputStream();
             ObjectWriter.writeObject(outputStream, rpcRequest, serializer);
@@ -74,9 +94,14 @@ public class SocketClient implements RpcClient {
             }
             RpcMessageChecker.check(rpcRequest, rpcResponse);
             return rpcResponse;
+        } catch (SocketTimeoutException e) {
+            logger.error("调用超时, service: {}", rpcRequest.getInterfaceName());
+            throw new RpcException(RpcError.REQUEST_TIMEOUT, " service:" + rpcRequest.getInterfaceName());
         } catch (IOException e) {
             logger.error("调用时有错误发生：", e);
             throw new RpcException("服务调用失败: ", e);
+        } finally {
+            stats.finish(startNanos);
         }
     }
 
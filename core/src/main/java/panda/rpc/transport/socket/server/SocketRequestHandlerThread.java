@@ -4,6 +4,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import panda.rpc.entity.RpcRequest;
 import panda.rpc.entity.RpcResponse;
+import panda.rpc.enumeration.ResponseCode;
 import panda.rpc.handler.RequestHandler;
 import panda.rpc.serializer.CommonSerializer;
 import panda.rpc.transport.socket.util.ObjectReader;
@@ -13,6 +14,8 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.Socket;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
 
 /**
  * 处理RpcRequest的工作线程
@@ -37,11 +40,32 @@ public class SocketRequestHandlerThread implements Runnable {
              OutputStream outputStream = socket.getOutputStream()) {
             RpcRequest rpcRequest = (RpcRequest) ObjectReader.readObject(inputStream);
             Object result = requestHandler.handle(rpcRequest);
-            RpcResponse<Object> response = RpcResponse.success(result, rpcRequest.getRequestId());
+            RpcResponse<?> response;
+            if (result instanceof RpcResponse) {
+                response = (RpcResponse<?>) result;
+            } else if (result instanceof CompletionStage) {
+                //阻塞IO模型下本来就是一个请求占用一个线程，直接等待异步方法完成
+                response = await((CompletionStage<?>) result, rpcRequest);
+            } else {
+                response = RpcResponse.success(result, rpcRequest);
+            }
             ObjectWriter.writeObject(outputStream, response, serializer);
         } catch (IOException e) {
             logger.error("调用或发送时有错误发生：", e);
         }
     }
 
+    private static RpcResponse<?> await(CompletionStage<?> stage, RpcRequest rpcRequest) {
+        try {
+            return RpcResponse.success(stage.toCompletableFuture().get(), rpcRequest);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return RpcResponse.fail(ResponseCode.FAIL, rpcRequest);
+        } catch (ExecutionException e) {
+            logger.error("服务:{} 异步方法:{} 执行失败", rpcRequest.getInterfaceName(), rpcRequest.getMethodName(),
+                    e.getCause());
+            return RpcResponse.fail(ResponseCode.FAIL, rpcRequest);
+        }
+    }
+
 }
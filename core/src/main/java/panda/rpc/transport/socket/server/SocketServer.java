@@ -4,7 +4,8 @@ import panda.rpc.factory.ThreadPoolFactory;
 import panda.rpc.handler.RequestHandler;
 import panda.rpc.hook.ShutdownHook;
 import panda.rpc.provider.ServiceProviderImpl;
-import panda.rpc.registry.NacosServiceRegistry;
+import panda.rpc.registry.RegistryFactory;
+import panda.rpc.registry.ServiceRegistry;
 import panda.rpc.serializer.CommonSerializer;
 import panda.rpc.transport.AbstractRpcServer;
 
@@ -29,10 +30,14 @@ public class SocketServer extends AbstractRpcServer {
     }
 
     public SocketServer(String host, int port, Integer serializer) {
+        this(host, port, serializer, RegistryFactory.createServiceRegistry());
+    }
+
+    public SocketServer(String host, int port, Integer serializer, ServiceRegistry serviceRegistry) {
         this.host = host;
         this.port = port;
         threadPool = ThreadPoolFactory.createDefaultThreadPool("socket-rpc-server");
-        this.serviceRegistry = new NacosServiceRegistry();
+        this.serviceRegistry = serviceRegistry;
         this.serviceProvider = new ServiceProviderImpl();
         this.serializer = CommonSerializer.getByCode(serializer);
         scanServices();
@@ -43,7 +48,7 @@ public class SocketServer extends AbstractRpcServer {
         try (ServerSocket serverSocket = new ServerSocket()) {
             serverSocket.bind(new InetSocketAddress(host, port));
             logger.info("服务器启动……");
-            ShutdownHook.getShutdownHook().addClearAllHook();
+            ShutdownHook.getShutdownHook().addClearAllHook(serviceRegistry);
             Socket socket;
             while ((socket = serverSocket.accept()) != null) {
                 logger.info("消费者连接: {}:{}", socket.getInetAddress(), socket.getPort());
@@ -1,65 +1,41 @@
 package panda.rpc.transport.socket.util;
 
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-import panda.rpc.entity.RpcRequest;
-import panda.rpc.entity.RpcResponse;
-import panda.rpc.enumeration.PackageType;
-import panda.rpc.enumeration.RpcError;
-import panda.rpc.exception.RpcException;
-import panda.rpc.serializer.CommonSerializer;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import panda.rpc.codec.FrameCodec;
 
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 
 /**
  * Socket方式从输入流中读取字节并反序列化
+ * 按帧头逐段读取，v1和v2两个版本的帧都可以识别
  */
 public class ObjectReader {
 
-    private static final Logger logger = LoggerFactory.getLogger(ObjectReader.class);
-    private static final int MAGIC_NUMBER = 0xCAFEBABE;
-
     public static Object readObject(InputStream in) throws IOException {
-        byte[] numberBytes = new byte[4];
-        in.read(numberBytes);
-        int magic = bytesToInt(numberBytes);
-        if (magic != MAGIC_NUMBER) {
-            logger.error("不识别的协议包: {}", magic);
-            throw new RpcException(RpcError.UNKNOWN_PROTOCOL);
-        }
-        in.read(numberBytes);
-        int packageCode = bytesToInt(numberBytes);
-        Class<?> packageClass;
-        if (packageCode == PackageType.REQUEST_PACK.getCode()) {
-            packageClass = RpcRequest.class;
-        } else if (packageCode == PackageType.RESPONSE_PACK.getCode()) {
-            packageClass = RpcResponse.class;
-        } else {
-            logger.error("不识别的数据包: {}", packageCode);
-            throw new RpcException(RpcError.UNKNOWN_PACKAGE_TYPE);
+        ByteBuf frame = ByteBufAllocator.DEFAULT.heapBuffer();
+        try {
+            int frameLength;
+            while ((frameLength = FrameCodec.frameLength(frame)) < 0) {
+                readFully(in, frame, -frameLength);
+            }
+            readFully(in, frame, frameLength - frame.readableBytes());
+            return FrameCodec.decode(frame);
+        } finally {
+            frame.release();
         }
-        in.read(numberBytes);
-        int serializerCode = bytesToInt(numberBytes);
-        CommonSerializer serializer = CommonSerializer.getByCode(serializerCode);
-        if (serializer == null) {
-            logger.error("不识别的反序列化器: {}", serializerCode);
-            throw new RpcException(RpcError.UNKNOWN_SERIALIZER);
-        }
-        in.read(numberBytes);
-        int length = bytesToInt(numberBytes);
-        byte[] bytes = new byte[length];
-        in.read(bytes);
-        return serializer.deserialize(bytes, packageClass);
     }
 
-    public static int bytesToInt(byte[] src) {
-        int value;
-        value = ((src[0] & 0xFF)<<24)
-                |((src[1] & 0xFF)<<16)
-                |((src[2] & 0xFF)<<8)
-                |(src[3] & 0xFF);
-        return value;
+    private static void readFully(InputStream in, ByteBuf frame, int length) throws IOException {
+        while (length > 0) {
+            int read = frame.writeBytes(in, length);
+            if (read < 0) {
+                throw new EOFException("读取数据包时连接已关闭");
+            }
+            length -= read;
+        }
     }
 
 }
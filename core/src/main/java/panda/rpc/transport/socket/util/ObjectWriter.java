@@ -1,7 +1,8 @@
 package panda.rpc.transport.socket.util;
 
-import panda.rpc.entity.RpcRequest;
-import panda.rpc.enumeration.PackageType;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import panda.rpc.codec.FrameCodec;
 import panda.rpc.serializer.CommonSerializer;
 
 import java.io.IOException;
@@ -10,30 +11,16 @@ import java.io.OutputStream;
 
 public class ObjectWriter {
 
-    private static final int MAGIC_NUMBER = 0xCAFEBABE;
-
     public static void writeObject(OutputStream outputStream, Object object, CommonSerializer serializer) throws IOException {
-
-        outputStream.write(intToBytes(MAGIC_NUMBER));
-        if (object instanceof RpcRequest) {
-            outputStream.write(intToBytes(PackageType.REQUEST_PACK.getCode()));
-        } else {
-            outputStream.write(intToBytes(PackageType.RESPONSE_PACK.getCode()));
+        //先把整帧编码到池化的堆缓冲区里，再一次性写出
+        ByteBuf buffer = ByteBufAllocator.DEFAULT.heapBuffer(FrameCodec.predictSize(object));
+        try {
+            FrameCodec.encode(object, serializer, buffer);
+            buffer.readBytes(outputStream, buffer.readableBytes());
+            outputStream.flush();
+        } finally {
+            buffer.release();
         }
-        outputStream.write(intToBytes(serializer.getCode()));
-        byte[] bytes = serializer.serialize(object);
-        outputStream.write(intToBytes(bytes.length));
-        outputStream.write(bytes);
-        outputStream.flush();
-
     }
 
-    private static byte[] intToBytes(int value) {
-        byte[] src = new byte[4];
-        src[0] = (byte) ((value>>24) & 0xFF);
-        src[1] = (byte) ((value>>16)& 0xFF);
-        src[2] = (byte) ((value>>8)&0xFF);
-        src[3] = (byte) (value & 0xFF);
-        return src;
-    }
 }
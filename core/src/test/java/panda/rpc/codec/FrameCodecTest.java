@@ -0,0 +1,240 @@
+package panda.rpc.codec;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.Test;
+import panda.rpc.compress.Compressor;
+import panda.rpc.entity.RpcRequest;
+import panda.rpc.entity.RpcResponse;
+import panda.rpc.serializer.CommonSerializer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 通过CommonEncoder和CommonDecoder验证v1、v2两个版本帧格式的编解码与互通
+ */
+public class FrameCodecTest {
+
+    private static final int[] SERIALIZERS = {
+            CommonSerializer.KRYO_SERIALIZER, CommonSerializer.JSON_SERIALIZER,
+            CommonSerializer.HESSIAN_SERIALIZER, CommonSerializer.PROTOBUF_SERIALIZER
+    };
+
+    private static final long SEQUENCE_ID = 0x1234_5678_9ABC_DEF0L;
+
+    private static RpcRequest request() {
+        RpcRequest request = new RpcRequest();
+        request.setInterfaceName("panda.rpc.api.HelloService");
+        request.setMethodName("hello");
+        request.setParameters(new Object[]{"panda"});
+        request.setParamTypes(new Class<?>[]{String.class});
+        request.setHeartBeat(false);
+        return request;
+    }
+
+    /**
+     * 用serializerCode编码msg，返回编码出的完整帧
+     */
+    private static ByteBuf encode(Object msg, int serializerCode) {
+        EmbeddedChannel channel = new EmbeddedChannel(new CommonEncoder(CommonSerializer.getByCode(serializerCode)));
+        assertTrue(channel.writeOutbound(msg));
+        ByteBuf frame = channel.readOutbound();
+        assertNull(channel.readOutbound());
+        channel.finishAndReleaseAll();
+        return frame;
+    }
+
+    /**
+     * 把帧按chunk字节一段送进解码器，返回解码出的全部消息
+     */
+    private static List<Object> decode(ByteBuf frames, int chunk) {
+        EmbeddedChannel channel = new EmbeddedChannel(new CommonDecoder());
+        try {
+            while (frames.isReadable()) {
+                channel.writeInbound(frames.readRetainedSlice(Math.min(chunk, frames.readableBytes())));
+            }
+        } finally {
+            frames.release();
+        }
+        List<Object> messages = new ArrayList<>();
+        Object msg;
+        while ((msg = channel.readInbound()) != null) {
+            messages.add(msg);
+        }
+        channel.finishAndReleaseAll();
+        return messages;
+    }
+
+    private static Object roundTrip(Object msg, int serializerCode) {
+        List<Object> messages = decode(encode(msg, serializerCode), Integer.MAX_VALUE);
+        assertEquals(1, messages.size());
+        return messages.get(0);
+    }
+
+    private static void assertRequest(RpcRequest expected, RpcRequest actual) {
+        assertEquals(expected.getInterfaceName(), actual.getInterfaceName());
+        assertEquals(expected.getMethodName(), actual.getMethodName());
+        assertArrayEquals(expected.getParameters(), actual.getParameters());
+        assertArrayEquals(expected.getParamTypes(), actual.getParamTypes());
+        assertEquals(expected.getSequenceId(), actual.getSequenceId());
+        assertEquals(expected.getMethodId(), actual.getMethodId());
+        assertEquals(expected.getCompressType(), actual.getCompressType());
+        assertEquals(expected.getCompressThreshold(), actual.getCompressThreshold());
+    }
+
+    @Test
+    public void v2RequestRoundTrip() {
+        for (int serializerCode : SERIALIZERS) {
+            RpcRequest request = request();
+            request.setSequenceId(SEQUENCE_ID);
+            request.setMethodId(300);
+
+            ByteBuf frame = encode(request, serializerCode);
+            assertEquals(FrameCodec.V2_MAGIC_NUMBER, frame.getUnsignedShort(0));
+            assertEquals(FrameCodec.FLAG_METHOD_ID, frame.getUnsignedByte(3));
+            RpcRequest decoded = (RpcRequest) decode(frame, Integer.MAX_VALUE).get(0);
+
+            assertRequest(request, decoded);
+            assertNull(decoded.getRequestId());
+        }
+    }
+
+    @Test
+    public void v2ResponseRoundTrip() {
+        for (int serializerCode : SERIALIZERS) {
+            RpcRequest request = request();
+            request.setSequenceId(-1L);
+            RpcResponse<String> response = RpcResponse.success("hello panda", request);
+
+            ByteBuf frame = encode(response, serializerCode);
+            assertEquals(FrameCodec.FLAG_RESPONSE, frame.getUnsignedByte(3) & FrameCodec.FLAG_RESPONSE);
+            RpcResponse<?> decoded = (RpcResponse<?>) decode(frame, Integer.MAX_VALUE).get(0);
+
+            assertEquals(-1L, decoded.getSequenceId());
+            assertEquals("hello panda", decoded.getData());
+            assertEquals(response.getStatusCode(), decoded.getStatusCode());
+            assertNull(decoded.getRequestId());
+        }
+    }
+
+    @Test
+    public void compressedRoundTrip() {
+        char[] text = new char[8 * 1024];
+        Arrays.fill(text, 'a');
+        for (Compressor compressor : new Compressor[]{Compressor.LZ4, Compressor.DEFLATE}) {
+            for (int serializerCode : SERIALIZERS) {
+                RpcRequest request = request();
+                request.setParameters(new Object[]{new String(text)});
+                request.setSequenceId(SEQUENCE_ID);
+                request.setCompressType(compressor.getCode());
+                request.setCompressThreshold(1024);
+
+                ByteBuf frame = encode(request, serializerCode);
+                int flags = frame.getUnsignedByte(3);
+                assertEquals(FrameCodec.FLAG_COMPRESS | FrameCodec.FLAG_COMPRESSED, flags);
+                assertTrue(frame.readableBytes() < text.length);
+
+                assertRequest(request, (RpcRequest) decode(frame, Integer.MAX_VALUE).get(0));
+            }
+        }
+    }
+
+    @Test
+    public void bodyShiftedWhenLengthOutgrowsReservedWidth() {
+        //StringBuilder类型的响应只在这里出现，预估大小为默认的256字节，长度字段预留2字节
+        StringBuilder data = new StringBuilder();
+        for (int i = 0; data.length() < 40 * 1024; i++) {
+            data.append(i).append(',');
+        }
+        RpcRequest request = request();
+        request.setSequenceId(SEQUENCE_ID);
+        RpcResponse<StringBuilder> response = RpcResponse.success(data, request);
+
+        ByteBuf frame = encode(response, CommonSerializer.KRYO_SERIALIZER);
+        //消息体超过2字节varint能表示的16383，长度字段扩展为3字节，消息体整体后移
+        int lengthIndex = 13;
+        assertEquals(3, FrameCodec.varIntWidth(frame, lengthIndex));
+        assertEquals(frame.readableBytes() - lengthIndex - 3, FrameCodec.getVarInt(frame, lengthIndex));
+
+        RpcResponse<?> decoded = (RpcResponse<?>) decode(frame, Integer.MAX_VALUE).get(0);
+        assertEquals(SEQUENCE_ID, decoded.getSequenceId());
+        assertEquals(data.toString(), decoded.getData().toString());
+    }
+
+    @Test
+    public void decodesFramesArrivingByteByByte() {
+        for (int serializerCode : SERIALIZERS) {
+            RpcRequest first = request();
+            first.setSequenceId(1);
+            first.setCompressType(Compressor.LZ4.getCode());
+            first.setCompressThreshold(1 << 20);
+            RpcRequest second = request();
+            second.setSequenceId(SEQUENCE_ID);
+            second.setMethodId(1 << 21);
+            RpcRequest third = request();
+            third.setRequestId("3");
+
+            ByteBuf frames = Unpooled.buffer();
+            for (RpcRequest request : new RpcRequest[]{first, second, third}) {
+                ByteBuf frame = encode(request, serializerCode);
+                frames.writeBytes(frame);
+                frame.release();
+            }
+            List<Object> messages = decode(frames, 1);
+
+            assertEquals(3, messages.size());
+            assertRequest(first, (RpcRequest) messages.get(0));
+            assertRequest(second, (RpcRequest) messages.get(1));
+            assertEquals("3", ((RpcRequest) messages.get(2)).getRequestId());
+        }
+    }
+
+    @Test
+    public void legacyRequestIsAnsweredInV1() {
+        for (int serializerCode : SERIALIZERS) {
+            RpcRequest request = request();
+            request.setRequestId("c0ffee-legacy-client");
+
+            ByteBuf requestFrame = encode(request, serializerCode);
+            assertEquals(FrameCodec.V1_MAGIC_NUMBER, requestFrame.getInt(0));
+            RpcRequest received = (RpcRequest) decode(requestFrame, Integer.MAX_VALUE).get(0);
+            assertEquals("c0ffee-legacy-client", received.getRequestId());
+
+            ByteBuf responseFrame = encode(RpcResponse.success("hello panda", received), serializerCode);
+            assertEquals(FrameCodec.V1_MAGIC_NUMBER, responseFrame.getInt(0));
+            RpcResponse<?> response = (RpcResponse<?>) decode(responseFrame, Integer.MAX_VALUE).get(0);
+
+            assertEquals("c0ffee-legacy-client", response.getRequestId());
+            assertEquals("hello panda", response.getData());
+            //旧版客户端的请求号不是数字，不解析出数字请求号
+            assertEquals(0, response.getSequenceId());
+        }
+    }
+
+    @Test
+    public void legacyClientParsesSequenceIdFromRequestId() {
+        //srpc.protocol.legacy 开启时客户端把数字请求号转成字符串放进requestId，按v1发送
+        long sequenceId = 123_456_789_012_345_678L;
+        RpcRequest request = request();
+        request.setSequenceId(sequenceId);
+        request.setRequestId(Long.toString(sequenceId));
+
+        RpcRequest received = (RpcRequest) roundTrip(request, CommonSerializer.KRYO_SERIALIZER);
+        //v1帧头中没有数字请求号
+        assertEquals(0, received.getSequenceId());
+
+        RpcResponse<?> response = (RpcResponse<?>) roundTrip(
+                RpcResponse.success("hello panda", received), CommonSerializer.KRYO_SERIALIZER);
+        assertEquals(Long.toString(sequenceId), response.getRequestId());
+        assertEquals(sequenceId, response.getSequenceId());
+    }
+
+}
@@ -0,0 +1,76 @@
+package panda.rpc.compress;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import org.junit.Test;
+import panda.rpc.codec.FrameCodec;
+import panda.rpc.enumeration.RpcError;
+import panda.rpc.exception.RpcException;
+import panda.rpc.serializer.CommonSerializer;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class CompressorTest {
+
+    private static final Compressor[] COMPRESSORS = {Compressor.LZ4, Compressor.DEFLATE};
+
+    @Test
+    public void roundTrip() {
+        byte[] raw = "hello panda, hello panda, hello panda".getBytes(StandardCharsets.UTF_8);
+        for (Compressor compressor : COMPRESSORS) {
+            ByteBuf compressed = Unpooled.buffer();
+            compressor.compress(Unpooled.wrappedBuffer(raw), compressed);
+            ByteBuf out = compressor.decompress(compressed, compressed.readableBytes(), ByteBufAllocator.DEFAULT);
+
+            byte[] bytes = new byte[out.readableBytes()];
+            out.readBytes(bytes);
+            out.release();
+            assertEquals(new String(raw, StandardCharsets.UTF_8), new String(bytes, StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    public void bodyShorterThanRawLengthIsRejected() {
+        for (Compressor compressor : COMPRESSORS) {
+            //2字节的消息体后面紧跟着下一帧的数据
+            ByteBuf in = Unpooled.buffer().writeShort(0x0102).writeInt(8).writeLong(0);
+            try {
+                compressor.decompress(in, 2, ByteBufAllocator.DEFAULT);
+                fail("消息体不足4字节时应当抛出DECOMPRESS_FAILURE");
+            } catch (RpcException e) {
+                assertEquals(RpcError.DECOMPRESS_FAILURE, e.getError());
+            }
+            assertEquals(0, in.readerIndex());
+        }
+    }
+
+    @Test
+    public void shortCompressedFrameFailsWithoutReadingNextFrame() {
+        for (Compressor compressor : COMPRESSORS) {
+            ByteBuf in = Unpooled.buffer();
+            in.writeShort(FrameCodec.V2_MAGIC_NUMBER);
+            in.writeByte(FrameCodec.VERSION_2);
+            in.writeByte(FrameCodec.FLAG_RESPONSE | FrameCodec.FLAG_COMPRESS | FrameCodec.FLAG_COMPRESSED);
+            in.writeByte(CommonSerializer.KRYO_SERIALIZER);
+            in.writeLong(1);
+            in.writeByte(compressor.getCode());
+            in.writeByte(0);
+            in.writeByte(2);
+            in.writeShort(0x0102);
+            int nextFrame = in.writerIndex();
+            in.writeLong(-1).writeLong(-1);
+            try {
+                FrameCodec.decode(in);
+                fail("消息体不足4字节时应当抛出DECOMPRESS_FAILURE");
+            } catch (RpcException e) {
+                assertEquals(RpcError.DECOMPRESS_FAILURE, e.getError());
+            }
+            assertEquals(nextFrame, in.readerIndex());
+        }
+    }
+
+}
@@ -0,0 +1,66 @@
+package panda.rpc.loadbalancer;
+
+import com.alibaba.nacos.api.naming.pojo.Instance;
+import org.junit.Test;
+import panda.rpc.entity.RpcRequest;
+
+import java.lang.reflect.Field;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ConsistentHashLoadBalancerTest {
+
+    private static Instance instance(int port, double weight) {
+        Instance instance = new Instance();
+        instance.setIp("127.0.0.1");
+        instance.setPort(port);
+        instance.setWeight(weight);
+        return instance;
+    }
+
+    private static int ringSize(ConsistentHashLoadBalancer.Ring ring) throws Exception {
+        Field points = ConsistentHashLoadBalancer.Ring.class.getDeclaredField("points");
+        points.setAccessible(true);
+        return ((long[]) points.get(ring)).length;
+    }
+
+    @Test
+    public void replicasAreCappedForHugeWeights() throws Exception {
+        List<Instance> instances = Arrays.asList(instance(9001, 1), instance(9002, 1e9));
+        ConsistentHashLoadBalancer loadBalancer = new ConsistentHashLoadBalancer();
+
+        int size = ringSize(loadBalancer.build(instances));
+
+        assertTrue("虚拟节点总数应当有上限: " + size, size <= 160 * 10 + 1);
+    }
+
+    @Test
+    public void weightsBelowCapKeepProportion() throws Exception {
+        List<Instance> instances = Arrays.asList(instance(9001, 1), instance(9002, 2));
+        ConsistentHashLoadBalancer loadBalancer = new ConsistentHashLoadBalancer();
+
+        assertEquals(160 * 3, ringSize(loadBalancer.build(instances)));
+    }
+
+    @Test
+    public void sameKeySelectsSameInstance() {
+        List<Instance> instances = Arrays.asList(instance(9001, 1), instance(9002, 1), instance(9003, 1));
+        ConsistentHashLoadBalancer loadBalancer = new ConsistentHashLoadBalancer();
+        Set<Instance> selected = new HashSet<>();
+        for (int i = 0; i < 100; i++) {
+            RpcRequest request = new RpcRequest();
+            request.setInterfaceName("panda.rpc.api.HelloService");
+            request.setHashKey("key-" + i);
+            Instance first = loadBalancer.select(instances, null, request);
+            assertEquals(first, loadBalancer.select(instances, null, request));
+            selected.add(first);
+        }
+        assertEquals(3, selected.size());
+    }
+
+}
@@ -0,0 +1,55 @@
+package panda.rpc.loadbalancer;
+
+import com.alibaba.nacos.api.naming.pojo.Instance;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SmoothWeightedRoundRobinLoadBalancerTest {
+
+    private static Instance instance(int port, double weight) {
+        Instance instance = new Instance();
+        instance.setIp("127.0.0.1");
+        instance.setPort(port);
+        instance.setWeight(weight);
+        return instance;
+    }
+
+    private static Map<Instance, Integer> count(List<Instance> instances, int rounds) {
+        SmoothWeightedRoundRobinLoadBalancer loadBalancer = new SmoothWeightedRoundRobinLoadBalancer();
+        Map<Instance, Integer> counts = new HashMap<>();
+        for (int i = 0; i < rounds; i++) {
+            counts.merge(loadBalancer.select(instances), 1, Integer::sum);
+        }
+        return counts;
+    }
+
+    @Test
+    public void distributesByWeight() {
+        Instance light = instance(9001, 1);
+        Instance heavy = instance(9002, 3);
+
+        Map<Instance, Integer> counts = count(Arrays.asList(light, heavy), 400);
+
+        assertEquals(100, (int) counts.get(light));
+        assertEquals(300, (int) counts.get(heavy));
+    }
+
+    @Test
+    public void largeWeightsDoNotOverflowWhenScaled() {
+        Instance light = instance(9001, 1);
+        Instance heavy = instance(9002, 1e7);
+
+        Map<Instance, Integer> counts = count(Arrays.asList(light, heavy), 1 << 14);
+
+        assertTrue(counts.get(heavy) > counts.getOrDefault(light, 0));
+        assertTrue(counts.getOrDefault(light, 0) >= 1);
+    }
+
+}
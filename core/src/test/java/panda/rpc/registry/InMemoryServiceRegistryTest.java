@@ -0,0 +1,48 @@
+package panda.rpc.registry;
+
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.HashSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 进程内注册表共用一张静态表，每个用例使用不同的服务名
+ */
+public class InMemoryServiceRegistryTest {
+
+    private static final InetSocketAddress FIRST  = new InetSocketAddress("127.0.0.1", 9101);
+    private static final InetSocketAddress SECOND = new InetSocketAddress("127.0.0.1", 9102);
+
+    @Test
+    public void sameServiceAtTwoAddresses() {
+        String service = "test.SameServiceAtTwoAddresses";
+        InMemoryServiceRegistry registry = new InMemoryServiceRegistry();
+        registry.register(service, FIRST);
+        registry.register(service, SECOND);
+
+        assertEquals(new HashSet<>(Arrays.asList(FIRST, SECOND)),
+                new HashSet<>(registry.lookupAllServices(service)));
+    }
+
+    @Test
+    public void clearRegistryRemovesEveryRegisteredAddress() {
+        String service = "test.ClearRegistryRemovesEveryRegisteredAddress";
+        InMemoryServiceRegistry registry = new InMemoryServiceRegistry();
+        InMemoryServiceRegistry other = new InMemoryServiceRegistry();
+        InetSocketAddress otherAddress = new InetSocketAddress("127.0.0.1", 9103);
+        registry.register(service, FIRST);
+        registry.register(service, SECOND);
+        other.register(service, otherAddress);
+
+        registry.clearRegistry();
+
+        assertEquals(Arrays.asList(otherAddress), registry.lookupAllServices(service));
+        other.clearRegistry();
+        assertTrue(registry.lookupAllServices(service).isEmpty());
+    }
+
+}
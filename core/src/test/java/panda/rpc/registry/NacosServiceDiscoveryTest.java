@@ -0,0 +1,121 @@
+package panda.rpc.registry;
+
+import com.alibaba.nacos.api.naming.listener.EventListener;
+import org.junit.After;
+import org.junit.Test;
+import panda.rpc.enumeration.RpcError;
+import panda.rpc.exception.RpcException;
+import panda.rpc.loadbalancer.RoundRobinLoadBalancer;
+
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.HashSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * 用LocalNamingService验证NacosServiceDiscovery的快照、推送、对账和关闭
+ */
+public class NacosServiceDiscoveryTest {
+
+    private static final String SERVICE = "panda.rpc.api.HelloService";
+
+    private static final InetSocketAddress FIRST  = new InetSocketAddress("127.0.0.1", 9001);
+    private static final InetSocketAddress SECOND = new InetSocketAddress("127.0.0.1", 9002);
+
+    private NacosServiceDiscovery discovery;
+
+    @After
+    public void tearDown() {
+        if (discovery != null) {
+            discovery.close();
+        }
+    }
+
+    @Test
+    public void pushReplacesSnapshotAndBumpsVersion() {
+        LocalNamingService namingService = new LocalNamingService();
+        namingService.registerInstance(SERVICE, FIRST.getHostString(), FIRST.getPort());
+        discovery = new NacosServiceDiscovery(new RoundRobinLoadBalancer(), namingService);
+
+        assertEquals(FIRST, discovery.lookupService(SERVICE));
+        assertEquals(1, discovery.getVersion(SERVICE));
+
+        namingService.registerInstance(SERVICE, SECOND.getHostString(), SECOND.getPort());
+
+        assertEquals(2, discovery.getVersion(SERVICE));
+        assertEquals(new HashSet<>(Arrays.asList(FIRST, SECOND)),
+                new HashSet<>(discovery.lookupAllServices(SERVICE)));
+    }
+
+    @Test
+    public void reconcileRepairsMissedPush() {
+        LocalNamingService namingService = new LocalNamingService() {
+            @Override
+            public void subscribe(String serviceName, EventListener listener) {
+                //模拟推送全部丢失
+            }
+        };
+        namingService.registerInstance(SERVICE, FIRST.getHostString(), FIRST.getPort());
+        discovery = new NacosServiceDiscovery(new RoundRobinLoadBalancer(), namingService);
+        assertEquals(FIRST, discovery.lookupService(SERVICE));
+
+        namingService.registerInstance(SERVICE, SECOND.getHostString(), SECOND.getPort());
+        assertEquals(1, discovery.getVersion(SERVICE));
+        assertEquals(1, discovery.lookupAllServices(SERVICE).size());
+
+        discovery.reconcile();
+
+        assertEquals(2, discovery.getVersion(SERVICE));
+        assertEquals(new HashSet<>(Arrays.asList(FIRST, SECOND)),
+                new HashSet<>(discovery.lookupAllServices(SERVICE)));
+    }
+
+    @Test
+    public void reconcileWithoutChangeKeepsVersion() {
+        LocalNamingService namingService = new LocalNamingService();
+        namingService.registerInstance(SERVICE, FIRST.getHostString(), FIRST.getPort());
+        discovery = new NacosServiceDiscovery(new RoundRobinLoadBalancer(), namingService);
+        discovery.lookupService(SERVICE);
+
+        discovery.reconcile();
+
+        assertEquals(1, discovery.getVersion(SERVICE));
+    }
+
+    @Test
+    public void lookupFailsAfterLastInstanceDeregistered() {
+        LocalNamingService namingService = new LocalNamingService();
+        namingService.registerInstance(SERVICE, FIRST.getHostString(), FIRST.getPort());
+        discovery = new NacosServiceDiscovery(new RoundRobinLoadBalancer(), namingService);
+        assertEquals(FIRST, discovery.lookupService(SERVICE));
+
+        namingService.deregisterInstance(SERVICE, FIRST.getHostString(), FIRST.getPort());
+
+        assertEquals(2, discovery.getVersion(SERVICE));
+        try {
+            discovery.lookupService(SERVICE);
+            fail("没有实例时应当抛出SERVICE_NOT_FOUND");
+        } catch (RpcException e) {
+            assertEquals(RpcError.SERVICE_NOT_FOUND, e.getError());
+        }
+    }
+
+    @Test
+    public void closeStopsFollowingPushes() {
+        LocalNamingService namingService = new LocalNamingService();
+        namingService.registerInstance(SERVICE, FIRST.getHostString(), FIRST.getPort());
+        discovery = new NacosServiceDiscovery(new RoundRobinLoadBalancer(), namingService);
+        discovery.lookupService(SERVICE);
+
+        discovery.close();
+        namingService.registerInstance(SERVICE, SECOND.getHostString(), SECOND.getPort());
+
+        assertEquals(1, discovery.getVersion(SERVICE));
+        assertTrue(discovery.lookupAllServices(SERVICE).contains(FIRST));
+        assertEquals(1, discovery.lookupAllServices(SERVICE).size());
+    }
+
+}
@@ -0,0 +1,145 @@
+package panda.rpc.transport.netty.client;
+
+import org.junit.Test;
+import panda.rpc.entity.RpcResponse;
+import panda.rpc.enumeration.RpcError;
+import panda.rpc.exception.RpcException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * 请求号都是2^20的倍数，落在同一个分段上；再挑出在分段内哈希到最后一个槽位的请求号，
+ * 探测链从数组末尾回绕到开头，覆盖扩容和回移删除的边界
+ */
+public class UnprocessedRequestsTest {
+
+    private static final int FINAL_CAPACITY = 256;
+
+    private final UnprocessedRequests requests = new UnprocessedRequests();
+
+    /**
+     * @return count个落在同一分段、并且在容量不超过256的表中都以最后一个槽位为起点的请求号
+     */
+    private static List<Long> collidingKeys(long from, int count) {
+        List<Long> keys = new ArrayList<>(count);
+        for (long j = from; keys.size() < count; j++) {
+            long key = j << 20;
+            if (UnprocessedRequests.Segment.index(key, FINAL_CAPACITY - 1) == FINAL_CAPACITY - 1) {
+                assertSame(UnprocessedRequests.segmentFor(from << 20), UnprocessedRequests.segmentFor(key));
+                keys.add(key);
+            }
+        }
+        return keys;
+    }
+
+    private static RpcResponse<Object> response(long sequenceId) {
+        RpcResponse<Object> response = new RpcResponse<>();
+        response.setSequenceId(sequenceId);
+        return response;
+    }
+
+    @Test
+    public void collidingKeysSurviveResizeAndRandomRemoval() throws Exception {
+        //100个元素使分段从64扩容到256，全部挤在同一条回绕的探测链上
+        List<Long> keys = collidingKeys(1, 100);
+        List<CompletableFuture<RpcResponse>> futures = new ArrayList<>();
+        AtomicInteger completions = new AtomicInteger();
+        for (long key : keys) {
+            CompletableFuture<RpcResponse> future = new CompletableFuture<>();
+            future.whenComplete((r, e) -> completions.incrementAndGet());
+            futures.add(future);
+            requests.put(key, future, 0);
+        }
+        long lateResponses = requests.getLateResponseCount();
+
+        List<Integer> order = new ArrayList<>();
+        for (int i = 0; i < keys.size(); i++) {
+            order.add(i);
+        }
+        Collections.shuffle(order, new Random(20240601));
+        for (int i : order) {
+            requests.complete(response(keys.get(i)));
+        }
+        //重复的响应找不到请求，不会再次完成future
+        for (long key : keys) {
+            requests.complete(response(key));
+        }
+
+        assertEquals(keys.size(), completions.get());
+        for (int i = 0; i < keys.size(); i++) {
+            assertEquals((long) keys.get(i), futures.get(i).get().getSequenceId());
+        }
+        assertEquals(lateResponses + keys.size(), requests.getLateResponseCount());
+    }
+
+    @Test
+    public void removeWrapsAroundEndOfArray() throws Exception {
+        //三个请求号起点都是最后一个槽位，依次占据最后一个槽位和数组开头的两个槽位
+        List<Long> keys = collidingKeys(1_000_000, 3);
+        List<CompletableFuture<RpcResponse>> futures = new ArrayList<>();
+        for (long key : keys) {
+            CompletableFuture<RpcResponse> future = new CompletableFuture<>();
+            futures.add(future);
+            requests.put(key, future, 0);
+        }
+
+        //移除最后一个槽位上的元素，数组开头的两个元素要回移到末尾
+        requests.remove(keys.get(0));
+        requests.complete(response(keys.get(2)));
+        requests.complete(response(keys.get(1)));
+
+        assertFalse(futures.get(0).isDone());
+        assertEquals((long) keys.get(1), futures.get(1).get().getSequenceId());
+        assertEquals((long) keys.get(2), futures.get(2).get().getSequenceId());
+    }
+
+    @Test
+    public void timeoutCompletesExceptionallyAndDropsLateResponse() throws Exception {
+        long key = collidingKeys(2_000_000, 1).get(0);
+        CompletableFuture<RpcResponse> future = new CompletableFuture<>();
+        long timeouts = requests.getTimeoutCount();
+        long lateResponses = requests.getLateResponseCount();
+
+        requests.put(key, future, 20);
+        try {
+            future.get(5, TimeUnit.SECONDS);
+            fail("请求应当超时");
+        } catch (ExecutionException e) {
+            assertEquals(RpcError.REQUEST_TIMEOUT, ((RpcException) e.getCause()).getError());
+        }
+        assertEquals(timeouts + 1, requests.getTimeoutCount());
+
+        requests.complete(response(key));
+
+        assertEquals(lateResponses + 1, requests.getLateResponseCount());
+        assertTrue(future.isCompletedExceptionally());
+    }
+
+    @Test
+    public void responseBeforeTimeoutCancelsDeadline() throws Exception {
+        long key = collidingKeys(3_000_000, 1).get(0);
+        CompletableFuture<RpcResponse> future = new CompletableFuture<>();
+        long timeouts = requests.getTimeoutCount();
+
+        requests.put(key, future, 50);
+        requests.complete(response(key));
+        Thread.sleep(150);
+
+        assertEquals(key, future.get().getSequenceId());
+        assertEquals(timeouts, requests.getTimeoutCount());
+    }
+
+}
@@ -0,0 +1,204 @@
+package panda.rpc.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.TypeParameterElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.ExecutableType;
+import javax.lang.model.type.PrimitiveType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 编译期为标记了@RpcStub的服务接口生成客户端存根
+ * 存根直接实现服务接口，类加载时解析好每个方法的Method，构造时通过StubInvoker绑定调用元数据，
+ * 调用时只需要把参数装进数组交给传输层，不再经过动态代理的反射分发
+ * 该模块只在编译期使用，不依赖common，注解和StubInvoker都按名字引用
+ */
+@SupportedAnnotationTypes(StubProcessor.RPC_STUB)
+public class StubProcessor extends AbstractProcessor {
+
+    static final String RPC_STUB = "panda.rpc.annotation.RpcStub";
+
+    private static final String STUB_INVOKER = "panda.rpc.stub.StubInvoker";
+    private static final String STUB_SUFFIX  = "_SrpcStub";
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (TypeElement annotation : annotations) {
+            for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+                if (element.getKind() != ElementKind.INTERFACE) {
+                    error("@RpcStub只能用于接口", element);
+                    continue;
+                }
+                try {
+                    generate((TypeElement) element);
+                } catch (IOException e) {
+                    error("生成客户端存根失败: " + e.getMessage(), element);
+                }
+            }
+        }
+        return true;
+    }
+
+    private void generate(TypeElement service) throws IOException {
+        Elements elements = processingEnv.getElementUtils();
+        Types types = processingEnv.getTypeUtils();
+        String packageName = elements.getPackageOf(service).getQualifiedName().toString();
+        //嵌套接口的存根也生成为顶层类，类名取二进制名，运行时按 Class.getName() + 后缀 查找
+        String binaryName = elements.getBinaryName(service).toString();
+        String stubName = (packageName.isEmpty() ? binaryName : binaryName.substring(packageName.length() + 1))
+                + STUB_SUFFIX;
+        String serviceName = service.getQualifiedName().toString();
+        DeclaredType serviceType = (DeclaredType) service.asType();
+
+        List<ExecutableElement> methods = new ArrayList<>();
+        for (ExecutableElement method : ElementFilter.methodsIn(elements.getAllMembers(service))) {
+            if (method.getEnclosingElement().getKind() == ElementKind.INTERFACE
+                    && method.getModifiers().contains(Modifier.ABSTRACT)) {
+                methods.add(method);
+            }
+        }
+
+        StringBuilder code = new StringBuilder();
+        if (!packageName.isEmpty()) {
+            code.append("package ").append(packageName).append(";\n\n");
+        }
+        code.append("/**\n * 由 ").append(getClass().getName()).append(" 根据 ").append(serviceName)
+                .append(" 生成，请勿修改\n */\n");
+        code.append("@SuppressWarnings({\"unchecked\", \"rawtypes\"})\n");
+        code.append("public final class ").append(stubName).append(typeParameters(service.getTypeParameters()))
+                .append(" implements ").append(serviceType).append(" {\n\n");
+
+        for (int i = 0; i < methods.size(); i++) {
+            ExecutableElement method = methods.get(i);
+            code.append("    private static final java.lang.reflect.Method METHOD").append(i)
+                    .append(" = method(\"").append(method.getSimpleName()).append('"');
+            for (Element parameter : method.getParameters()) {
+                code.append(", ").append(types.erasure(parameter.asType())).append(".class");
+            }
+            code.append(");\n");
+        }
+        code.append('\n');
+        for (int i = 0; i < methods.size(); i++) {
+            code.append("    private final ").append(STUB_INVOKER).append(".Call call").append(i).append(";\n");
+        }
+        code.append('\n');
+
+        code.append("    public ").append(stubName).append('(').append(STUB_INVOKER).append(" invoker) {\n");
+        for (int i = 0; i < methods.size(); i++) {
+            code.append("        this.call").append(i).append(" = invoker.bind(METHOD").append(i).append(");\n");
+        }
+        code.append("    }\n");
+
+        for (int i = 0; i < methods.size(); i++) {
+            ExecutableElement method = methods.get(i);
+            //父接口带泛型参数时按当前接口替换成实际类型
+            ExecutableType methodType = (ExecutableType) types.asMemberOf(serviceType, method);
+            List<? extends TypeMirror> parameterTypes = methodType.getParameterTypes();
+            TypeMirror returnType = methodType.getReturnType();
+
+            code.append("\n    @Override\n    public ");
+            String methodTypeParameters = typeParameters(method.getTypeParameters());
+            if (!methodTypeParameters.isEmpty()) {
+                code.append(methodTypeParameters).append(' ');
+            }
+            code.append(returnType).append(' ').append(method.getSimpleName()).append('(');
+            for (int j = 0; j < parameterTypes.size(); j++) {
+                if (j > 0) {
+                    code.append(", ");
+                }
+                TypeMirror parameterType = parameterTypes.get(j);
+                if (method.isVarArgs() && j == parameterTypes.size() - 1) {
+                    code.append(((ArrayType) parameterType).getComponentType()).append("...");
+                } else {
+                    code.append(parameterType);
+                }
+                code.append(" arg").append(j);
+            }
+            code.append(')');
+            List<? extends TypeMirror> thrownTypes = methodType.getThrownTypes();
+            for (int j = 0; j < thrownTypes.size(); j++) {
+                code.append(j == 0 ? " throws " : ", ").append(thrownTypes.get(j));
+            }
+            code.append(" {\n        ");
+
+            StringBuilder call = new StringBuilder("call").append(i).append(".invoke(new Object[] {");
+            for (int j = 0; j < parameterTypes.size(); j++) {
+                call.append(j == 0 ? "arg" : ", arg").append(j);
+            }
+            call.append("})");
+            if (returnType.getKind() == TypeKind.VOID) {
+                code.append(call).append(";\n");
+            } else if (returnType.getKind().isPrimitive()) {
+                code.append("return (").append(types.boxedClass((PrimitiveType) returnType)
+                        .getQualifiedName()).append(") ").append(call).append(";\n");
+            } else {
+                code.append("return (").append(returnType).append(") ").append(call).append(";\n");
+            }
+            code.append("    }\n");
+        }
+
+        code.append("\n    private static java.lang.reflect.Method method(String name, Class<?>... parameterTypes) {\n")
+                .append("        try {\n")
+                .append("            return ").append(serviceName).append(".class.getMethod(name, parameterTypes);\n")
+                .append("        } catch (NoSuchMethodException e) {\n")
+                .append("            throw new NoSuchMethodError(\"").append(serviceName).append(".\" + name);\n")
+                .append("        }\n")
+                .append("    }\n\n}\n");
+
+        String stubClassName = packageName.isEmpty() ? stubName : packageName + "." + stubName;
+        try (Writer writer = processingEnv.getFiler().createSourceFile(stubClassName, service).openWriter()) {
+            writer.write(code.toString());
+        }
+    }
+
+    private static String typeParameters(List<? extends TypeParameterElement> typeParameters) {
+        if (typeParameters.isEmpty()) {
+            return "";
+        }
+        StringBuilder builder = new StringBuilder("<");
+        for (int i = 0; i < typeParameters.size(); i++) {
+            TypeParameterElement typeParameter = typeParameters.get(i);
+            if (i > 0) {
+                builder.append(", ");
+            }
+            builder.append(typeParameter.getSimpleName());
+            List<? extends TypeMirror> bounds = typeParameter.getBounds();
+            for (int j = 0; j < bounds.size(); j++) {
+                if (j == 0 && bounds.size() == 1 && "java.lang.Object".equals(bounds.get(0).toString())) {
+                    break;
+                }
+                builder.append(j == 0 ? " extends " : " & ").append(bounds.get(j));
+            }
+        }
+        return builder.append('>').toString();
+    }
+
+    private void error(String message, Element element) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+
+}
@@ -2,8 +2,9 @@ package panda.rpc;
 
 
 import panda.rpc.annotation.Service;
+import panda.rpc.enumeration.DispatchStrategy;
 
-@Service
+@Service(dispatch = DispatchStrategy.INLINE)
 public class ByeServiceImpl implements ByeService {
 
     @Override